@@ -1,12 +1,31 @@
 import menu.invoker.Invoker;
+import menu.server.CommandServer;
+import menu.server.HttpApiServer;
+import utils.Checkpointer;
+import utils.HeapSeatStore;
+import utils.Journal;
+import utils.MappedSeatStore;
+import utils.SeatStore;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * The entry point of the application.
  * <p>
- * This class contains the main method that initializes the {@code Invoker} and starts the command processing.
+ * This class contains the main method that initializes the {@code Invoker} and starts the command processing:
+ * on the console by default, as a {@link CommandServer} for network clients with {@code --server <port>},
+ * and/or as an {@link HttpApiServer} with {@code --http <port>}. All of them share the same events.
+ * {@code --drain-rate <perSecond>} limits how many sales per second each event lets through, and
+ * {@code --rate-limit <perSecond>} how many commands per second each network client may send.
+ * {@code --journal <file>} records every change in a write-ahead {@link Journal}, forced to disk as set
+ * by {@code --durability per-command|grouped|async}, grouped by default. At startup the events are
+ * recovered from the last checkpoint and the journal after it, and a new checkpoint is taken whenever
+ * {@code --checkpoint-every <MB>} of records, 64 by default, have been appended since the last one.
+ * {@code --seat-store <directory>} keeps the seat states of the halls in memory-mapped files there
+ * instead of on the heap; with a journal, the files current with the last checkpoint are taken over at
+ * startup.
  * </p>
  */
 public class Main {
@@ -16,11 +35,70 @@ public class Main {
      * It creates an instance of {@code Invoker} and invokes it to start the command processing.
      * </p>
      *
-     * @param args command-line arguments (not used in this application)
+     * @param args command-line arguments: none for the console, or {@code --server <port>}, {@code --http <port>}
+     *             and {@code --drain-rate <perSecond>}, {@code --rate-limit <perSecond>},
+     *             {@code --journal <file>}, {@code --durability <mode>}, {@code --checkpoint-every <MB>}
+     *             and {@code --seat-store <directory>}
+     * @throws IOException if a server port, the journal or the seat store directory cannot be opened
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         Invoker invoker = new Invoker();
-        invoker.invoke();
+        int commandPort = -1;
+        int httpPort = -1;
+        String journalPath = null;
+        Journal.Durability durability = Journal.Durability.GROUPED;
+        long checkpointBytes = 64L << 20;
+        SeatStore.Factory seatStoreFactory = HeapSeatStore.FACTORY;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--server")) {
+                commandPort = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--http")) {
+                httpPort = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--drain-rate")) {
+                invoker.getWaitingRoom().setDrainRate(Integer.parseInt(args[i + 1]));
+            } else if (args[i].equals("--rate-limit")) {
+                int perSecond = Integer.parseInt(args[i + 1]);
+                invoker.getRateLimiter().setRate(perSecond, Math.max(1, 2 * perSecond));
+            } else if (args[i].equals("--journal")) {
+                journalPath = args[i + 1];
+            } else if (args[i].equals("--durability")) {
+                durability = Journal.Durability.valueOf(args[i + 1].toUpperCase().replace('-', '_'));
+            } else if (args[i].equals("--checkpoint-every")) {
+                checkpointBytes = Long.parseLong(args[i + 1]) << 20;
+            } else if (args[i].equals("--seat-store")) {
+                Path directory = Files.createDirectories(Path.of(args[i + 1]));
+                seatStoreFactory = MappedSeatStore.factory(directory);
+                invoker.getHalls().setSeatStoreFactory(seatStoreFactory);
+            }
+        }
+        if (journalPath != null) {
+            Journal journal = new Journal(Path.of(journalPath), durability);
+            Checkpointer checkpointer = new Checkpointer(invoker.getEventBooker(), invoker.getHalls(),
+                    invoker.getWriter(), journal, Path.of(journalPath)).setThreshold(checkpointBytes);
+            long start = System.nanoTime();
+            long records = checkpointer.recover();
+            if (!invoker.getEventBooker().getEvents().isEmpty()) {
+                System.out.printf("Recovered %d events, %d journal records replayed in %d ms%n",
+                        invoker.getEventBooker().getEvents().size(), records, (System.nanoTime() - start) / 1_000_000);
+            }
+            invoker.setJournal(journal);
+            checkpointer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("The journal could not be closed");
+                }
+            }));
+        }
+        seatStoreFactory.discardUnrecovered();
+        if (httpPort >= 0) {
+            new HttpApiServer(invoker, httpPort).start();
+        }
+        if (commandPort >= 0) {
+            new CommandServer(invoker, commandPort).serve();
+        } else if (httpPort < 0) {
+            invoker.invoke();
+        }
     }
 }
-
@@ -0,0 +1,225 @@
+package entities;
+
+import exceptions.EventException;
+import utils.ShardedWriter;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The BookingDeadlines class releases unpaid bookings when an event gets close:
+ * a fixed window, 24 hours by default, before {@link Event#getDate()}.
+ * <p>
+ * Every registered event is queued with its deadline in a {@link DelayQueue}, a priority queue
+ * ordered by deadline. A daemon thread waits for the head of the queue, so only events whose
+ * deadline has actually passed are ever touched, and for those only the booked seats are visited.
+ * Booked but unpaid seats become free again, which updates the occupancy counters of the hall;
+ * paid and held seats are kept. Once an event is past its deadline it takes no new bookings.
+ * </p>
+ * <p>
+ * The release of an event runs on the writer of the event's shard of the EventBooker, between two
+ * commands of the event, and each released seat is recorded in the journal as an unbooking, so a
+ * restart does not bring the released bookings back.
+ * </p>
+ */
+public class BookingDeadlines {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final EventBooker eventBooker;
+    private final Duration window;
+    private final DelayQueue<Deadline> deadlines;
+    private final Map<Event, Integer> released;
+    private final AtomicInteger totalReleased;
+    private volatile Thread releaser;
+
+    /**
+     * Constructs the deadline policy of an EventBooker.
+     *
+     * @param eventBooker The EventBooker whose events are tracked.
+     * @param window      How long before an event its unpaid bookings are released.
+     */
+    public BookingDeadlines(EventBooker eventBooker, Duration window) {
+        this.eventBooker = eventBooker;
+        this.window = window;
+        this.deadlines = new DelayQueue<>();
+        this.released = new ConcurrentHashMap<>();
+        this.totalReleased = new AtomicInteger();
+    }
+
+    /**
+     * Returns how long before an event its unpaid bookings are released.
+     *
+     * @return The window.
+     */
+    public Duration getWindow() {
+        return window;
+    }
+
+    /**
+     * Starts tracking the deadline of an event. Called by the EventBooker when the event is added.
+     *
+     * @param event The event.
+     */
+    void track(Event event) {
+        deadlines.add(new Deadline(event, event.getDate().minus(window)));
+        if (releaser == null) {
+            startReleaser();
+        }
+    }
+
+    /**
+     * Stops tracking every event. Called by the EventBooker when its events are replaced.
+     */
+    void clear() {
+        deadlines.clear();
+    }
+
+    /**
+     * Checks if the deadline of an event has passed, i.e. it no longer takes bookings.
+     *
+     * @param event The event.
+     * @return True if bookings for the event are closed, false otherwise.
+     */
+    public boolean isClosed(Event event) {
+        return !LocalDateTime.now().isBefore(event.getDate().minus(window));
+    }
+
+    /**
+     * Checks that an event still takes bookings.
+     *
+     * @param event The event.
+     * @throws EventException If the deadline of the event has passed.
+     */
+    public void checkOpen(Event event) {
+        if (isClosed(event)) {
+            throw new EventException("Bookings for this event are closed, the seats can only be bought");
+        }
+    }
+
+    /**
+     * Releases the unpaid bookings of every event whose deadline has passed and that was not released yet.
+     * This is what the releaser thread does as deadlines come due.
+     *
+     * @return The number of bookings released.
+     */
+    public int releaseDue() {
+        int count = 0;
+        Deadline deadline;
+        while ((deadline = deadlines.poll()) != null) {
+            count += release(deadline.event);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of bookings released per event, ordered by event date.
+     *
+     * @return A list of events paired with the number of bookings released for them.
+     */
+    public List<Map.Entry<Event, Integer>> getReleased() {
+        List<Map.Entry<Event, Integer>> list = new ArrayList<>(released.entrySet());
+        list.sort(Comparator.comparing(entry -> entry.getKey().getDate()));
+        return list;
+    }
+
+    /**
+     * Returns the total number of bookings released.
+     *
+     * @return The number of bookings released.
+     */
+    public int getTotalReleased() {
+        return totalReleased.get();
+    }
+
+    private int release(Event event) {
+        String key = ShardedWriter.routingKey(event.getDate().format(DATE_FORMAT), event.getName());
+        return eventBooker.getWriter().call(key, () -> releaseBookings(event));
+    }
+
+    private int releaseBookings(Event event) {
+        // events removed from the booker in the meantime are left alone
+        if (!eventBooker.isRegistered(event)) {
+            return 0;
+        }
+        Hall hall = event.getHall();
+        if (!hall.isMaterialized()) {
+            return 0;
+        }
+        SeatStates states = hall.getSeatStates();
+        int count = 0;
+        for (int index = states.nextBooked(0); index >= 0; index = states.nextBooked(index + 1)) {
+            if (states.unbook(index)) {
+                states.setNote(index, "");
+                eventBooker.getJournal().unbook(event.getId(), index);
+                count++;
+            }
+        }
+        if (count > 0) {
+            released.merge(event, count, Integer::sum);
+            totalReleased.addAndGet(count);
+        }
+        return count;
+    }
+
+    private synchronized void startReleaser() {
+        if (releaser != null) {
+            return;
+        }
+        // the thread holds its owner weakly, so an EventBooker that is no longer used
+        // can be collected, after which the thread ends
+        WeakReference<BookingDeadlines> owner = new WeakReference<>(this);
+        DelayQueue<Deadline> queue = deadlines;
+        releaser = new Thread(() -> {
+            while (owner.get() != null) {
+                try {
+                    Deadline deadline = queue.poll(1, TimeUnit.SECONDS);
+                    BookingDeadlines policy = owner.get();
+                    if (deadline != null && policy != null) {
+                        policy.release(deadline.event);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    // a failing release must not stop the others
+                }
+            }
+        }, "booking-deadlines");
+        releaser.setDaemon(true);
+        releaser.start();
+    }
+
+    /**
+     * The deadline of one event, as queued in the delay queue.
+     */
+    private static final class Deadline implements Delayed {
+        private final Event event;
+        private final long deadlineMillis;
+
+        private Deadline(Event event, LocalDateTime deadline) {
+            this.event = event;
+            this.deadlineMillis = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineMillis, ((Deadline) other).deadlineMillis);
+        }
+    }
+}
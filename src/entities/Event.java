@@ -6,6 +6,7 @@ import java.time.LocalDateTime;
  * Represents an event with a specific date, name, and location (hall).
  */
 public class Event {
+    private long id;
     private LocalDateTime date;
     private String name;
     private Hall hall;
@@ -23,6 +24,27 @@ public class Event {
         this.hall = hall;
     }
 
+    /**
+     * Returns the id of the event, assigned by the {@link EventBooker} it is added to.
+     * Ticket codes encode this id.
+     *
+     * @return The id of the event, or 0 if the event has not been added to an EventBooker yet.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id of the event.
+     *
+     * @param id The new id of the event.
+     * @return The current Event instance for method chaining.
+     */
+    public Event setId(long id) {
+        this.id = id;
+        return this;
+    }
+
     /**
      * Returns the date and time of the event.
      *
@@ -34,6 +56,7 @@ public class Event {
 
     /**
      * Sets the date and time of the event.
+     * Must not be called while the event is registered in an {@link EventBooker}, whose indexes are keyed by date.
      *
      * @param date The new date and time of the event.
      * @return The current Event instance for method chaining.
@@ -54,6 +77,7 @@ public class Event {
 
     /**
      * Sets the name of the event.
+     * Must not be called while the event is registered in an {@link EventBooker}, whose indexes are keyed by name.
      *
      * @param name The new name of the event.
      * @return The current Event instance for method chaining.
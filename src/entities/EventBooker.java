@@ -1,53 +1,153 @@
 package entities;
 
+import exceptions.EventException;
 import exceptions.ThereIsNoSuchEvent;
+import utils.Journal;
+import utils.PermutedTicketCodeAllocator;
+import utils.Session;
+import utils.ShardedWriter;
+import utils.TicketCodeAllocator;
+import utils.TimingWheel;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The EventBooker class is responsible for managing a list of events.
  * It provides methods for adding, removing, and retrieving events based on
  * various criteria such as name and date.
+ * <p>
+ * The events are registered by id, and the booker keeps a (name, date) hash index, a name index
+ * and a date-ordered index, so point lookups are O(1) and date lookups O(log n).
+ * All indexes are maintained by the mutators of this class, which is why
+ * {@link #getEvents()} returns a copy. Every event gets an id when it is added;
+ * ticket codes are allocated from that id by a pluggable {@link TicketCodeAllocator},
+ * so a code decodes straight back to its event.
+ * </p>
+ * <p>
+ * Seats can also be held for a limited time with {@link #holdSeat(Event, int, long)}. Holds are
+ * released by a shared {@link TimingWheel} with a one second tick, so outstanding holds cost
+ * nothing until they expire, and expired holds are freed in batches, one writer task per shard. Unpaid bookings are
+ * released a day before their event by {@link BookingDeadlines}.
+ * </p>
+ * <p>
+ * The booker is safe for concurrent use. The registry and its indexes are concurrent maps, so reads
+ * never block; mutations of the registry are serialized on this object. Seat transitions are lock-free
+ * and ticket mutations are locked per event by the event's {@link Hall}.
+ * </p>
+ * <p>
+ * Added and removed events and issued tickets are recorded in the booker's {@link Journal}, as are the
+ * bookings the operations make; the default journal records nothing. Changes made outside the
+ * commands run on the booker's {@link ShardedWriter}, the one of the {@code Invoker}.
+ * </p>
  */
 public class EventBooker {
-    private List<Event> events;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final NavigableMap<Long, Event> eventsById;
+    private final Map<EventKey, Event> eventsByNameAndDate;
+    private final Map<String, List<Event>> eventsByName;
+    private final NavigableMap<LocalDateTime, List<Event>> eventsByDate;
+    private volatile TicketCodeAllocator ticketCodeAllocator;
+    private long lastEventId;
+    private final Map<Long, SeatHold> holdsById;
+    private final AtomicLong lastHoldId;
+    private final TimingWheel holdWheel;
+    private final HoldReleaser holdReleaser;
+    private volatile BookingDeadlines bookingDeadlines;
+    private volatile Journal journal;
+    private volatile ShardedWriter writer;
 
     /**
      * Constructs an EventBooker instance with an empty list of events.
      */
     public EventBooker() {
-        this.events = new ArrayList<>();
+        this.eventsById = new ConcurrentSkipListMap<>();
+        this.eventsByNameAndDate = new ConcurrentHashMap<>();
+        this.eventsByName = new ConcurrentHashMap<>();
+        this.eventsByDate = new ConcurrentSkipListMap<>();
+        this.ticketCodeAllocator = new PermutedTicketCodeAllocator();
+        this.holdsById = new ConcurrentHashMap<>();
+        this.lastHoldId = new AtomicLong();
+        this.holdWheel = new TimingWheel(1, TimeUnit.SECONDS, 4096);
+        this.journal = new Journal();
+        this.writer = new ShardedWriter(1, 64);
+        this.holdReleaser = new HoldReleaser(writer);
     }
 
     /**
-     * Returns the list of events managed by this EventBooker.
+     * Returns the list of events managed by this EventBooker, in the order they were added.
      *
-     * @return A list of Event objects.
+     * @return A copy of the list of Event objects.
      */
     public List<Event> getEvents() {
-        return events;
+        return new ArrayList<>(eventsById.values());
     }
 
     /**
-     * Sets the list of events managed by this EventBooker.
+     * Sets the list of events managed by this EventBooker and rebuilds the indexes.
      *
      * @param events A list of Event objects to set.
      * @return The current EventBooker instance for method chaining.
      */
-    public EventBooker setEvents(List<Event> events) {
-        this.events = events;
+    public synchronized EventBooker setEvents(List<Event> events) {
+        this.eventsById.clear();
+        this.eventsByNameAndDate.clear();
+        this.eventsByName.clear();
+        this.eventsByDate.clear();
+        getBookingDeadlines().clear();
+        for (Event event : events) {
+            addEvent(event);
+        }
         return this;
     }
 
     /**
-     * Adds an event to the list of events.
+     * Adds an event to the list of events, assigning it an id if it does not have one yet.
      *
      * @param event The Event to be added.
+     * @throws EventException If the hall of the event has more seats than the ticket codes have serials for.
      */
-    public void addEvent(Event event) {
-        events.add(event);
+    public synchronized void addEvent(Event event) {
+        if (event.getHall().getMaxAmountOfTickets() > ticketCodeAllocator.maxSerials()) {
+            throw new EventException("The hall has more seats than tickets can be issued for");
+        }
+        if (event.getId() == 0) {
+            event.setId(++lastEventId);
+        } else {
+            lastEventId = Math.max(lastEventId, event.getId());
+        }
+        eventsById.put(event.getId(), event);
+        eventsByNameAndDate.put(new EventKey(event.getName(), event.getDate()), event);
+        eventsByName.computeIfAbsent(event.getName(), name -> new CopyOnWriteArrayList<>()).add(event);
+        eventsByDate.computeIfAbsent(event.getDate(), date -> new CopyOnWriteArrayList<>()).add(event);
+        getBookingDeadlines().track(event);
+        journal.addEvent(event);
+    }
+
+    /**
+     * Adds an event unless an event with the same name already exists. The check and the addition are atomic.
+     *
+     * @param event The Event to be added.
+     * @return True if the event was added, false if an event with the same name exists.
+     */
+    public synchronized boolean addEventIfNameAbsent(Event event) {
+        if (eventsByName.containsKey(event.getName())) {
+            return false;
+        }
+        addEvent(event);
+        return true;
     }
 
     /**
@@ -55,8 +155,11 @@ public class EventBooker {
      *
      * @param event The Event to be removed.
      */
-    public void removeEvent(Event event) {
-        events.remove(event);
+    public synchronized void removeEvent(Event event) {
+        if (eventsById.remove(event.getId(), event)) {
+            unindex(event);
+            journal.removeEvent(event.getId());
+        }
     }
 
     /**
@@ -64,8 +167,216 @@ public class EventBooker {
      *
      * @param events A list of Event objects to be removed.
      */
-    public void removeEvents(List<Event> events) {
-        this.events.removeAll(events);
+    public synchronized void removeEvents(List<Event> events) {
+        for (Event event : events) {
+            removeEvent(event);
+        }
+    }
+
+    /**
+     * Checks if an event is currently registered in this EventBooker.
+     *
+     * @param event The event.
+     * @return True if the event is registered, false otherwise.
+     */
+    public boolean isRegistered(Event event) {
+        return eventsById.get(event.getId()) == event;
+    }
+
+    /**
+     * Returns the policy that releases unpaid bookings ahead of their events, creating it on first use,
+     * after the EventBooker is constructed, as it refers back to it.
+     *
+     * @return The BookingDeadlines.
+     */
+    public BookingDeadlines getBookingDeadlines() {
+        BookingDeadlines deadlines = bookingDeadlines;
+        if (deadlines == null) {
+            synchronized (this) {
+                deadlines = bookingDeadlines;
+                if (deadlines == null) {
+                    deadlines = new BookingDeadlines(this, Duration.ofHours(24));
+                    bookingDeadlines = deadlines;
+                }
+            }
+        }
+        return deadlines;
+    }
+
+    /**
+     * Returns the allocator used for the ticket codes of this EventBooker.
+     *
+     * @return The TicketCodeAllocator.
+     */
+    public TicketCodeAllocator getTicketCodeAllocator() {
+        return ticketCodeAllocator;
+    }
+
+    /**
+     * Sets the allocator used for the ticket codes of this EventBooker.
+     *
+     * @param ticketCodeAllocator The new TicketCodeAllocator.
+     * @return The current EventBooker instance for method chaining.
+     */
+    public EventBooker setTicketCodeAllocator(TicketCodeAllocator ticketCodeAllocator) {
+        this.ticketCodeAllocator = ticketCodeAllocator;
+        return this;
+    }
+
+    /**
+     * Returns the journal the changes of this EventBooker are recorded in.
+     *
+     * @return The Journal.
+     */
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets the journal the changes of this EventBooker are recorded in.
+     *
+     * @param journal The new Journal.
+     * @return The current EventBooker instance for method chaining.
+     */
+    public EventBooker setJournal(Journal journal) {
+        this.journal = journal;
+        return this;
+    }
+
+    /**
+     * Returns the writer the mutations of this EventBooker run on. Work that changes the events from
+     * outside a command, such as a release in the background, is passed to it so it is serialized with
+     * the commands.
+     *
+     * @return The ShardedWriter.
+     */
+    public ShardedWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Returns a consistent view of the hall of an event, as {@link Hall#snapshot()} does, while sales go on.
+     * If the copy keeps being overtaken by sales, as on a large, busy hall, it is taken on the writer of
+     * the event instead, between two of its changes, so it is never retried without end.
+     *
+     * @param event The event.
+     * @return The HallSnapshot of its hall.
+     */
+    public HallSnapshot snapshot(Event event) {
+        Hall hall = event.getHall();
+        HallSnapshot snapshot = hall.trySnapshot();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        return writer.call(ShardedWriter.routingKey(event.getDate().format(DATE_FORMAT), event.getName()), hall::snapshot);
+    }
+
+    /**
+     * Sets the writer the mutations of this EventBooker run on.
+     *
+     * @param writer The new ShardedWriter.
+     * @return The current EventBooker instance for method chaining.
+     */
+    public EventBooker setWriter(ShardedWriter writer) {
+        this.writer = writer;
+        holdReleaser.setWriter(writer);
+        return this;
+    }
+
+    /**
+     * Issues a ticket for a seat of an event, allocating a code that is unique among all tickets.
+     *
+     * @param event      The event the ticket is issued for.
+     * @param seatNumber The seat number of the ticket.
+     * @return The issued Ticket.
+     */
+    public Ticket issueTicket(Event event, String seatNumber) {
+        Hall hall = event.getHall();
+        int serial = hall.nextTicketSerial();
+        long code = ticketCodeAllocator.allocate(event.getId(), serial);
+        Ticket ticket = hall.addTicket(new Ticket(code, seatNumber));
+        journal.ticket(event.getId(), hall.getSeatIndex(seatNumber), serial, code);
+        return ticket;
+    }
+
+    /**
+     * Holds a free seat of an event for the given number of minutes, after which it is released.
+     *
+     * @param event     The event the seat belongs to.
+     * @param seatIndex The index of the seat.
+     * @param minutes   How long the seat stays held.
+     * @return The new SeatHold, or null if the seat is not free.
+     */
+    public SeatHold holdSeat(Event event, int seatIndex, long minutes) {
+        if (minutes <= 0) {
+            throw new IllegalArgumentException("A hold must last at least a minute");
+        }
+        if (!event.getHall().getSeatStates().compareAndSetState(seatIndex, SeatStates.FREE, SeatStates.HELD)) {
+            return null;
+        }
+        SeatHold hold = new SeatHold(lastHoldId.incrementAndGet(), event, seatIndex, holdsById, holdReleaser);
+        holdsById.put(hold.getId(), hold);
+        holdWheel.schedule(hold, minutes, TimeUnit.MINUTES);
+        return hold;
+    }
+
+    /**
+     * Retrieves an active hold by its id.
+     *
+     * @param holdId The id of the hold.
+     * @return The SeatHold, or null if there is no such hold or it has ended.
+     */
+    public SeatHold getHold(long holdId) {
+        return holdsById.get(holdId);
+    }
+
+    /**
+     * Buys the seat of an active hold and issues its ticket. Converting the hold and its expiry
+     * are mutually exclusive, so the seat is either bought or released, never both.
+     *
+     * @param holdId The id of the hold.
+     * @return The issued Ticket, or null if there is no such hold or it has ended.
+     */
+    public Ticket buyHeldSeat(long holdId) {
+        SeatHold hold = holdsById.get(holdId);
+        if (hold == null || !hold.convert()) {
+            return null;
+        }
+        Event event = hold.getEvent();
+        return issueTicket(event, event.getHall().getSeatLabel(hold.getSeatIndex()));
+    }
+
+    /**
+     * Retrieves the event a ticket code belongs to, together with checking that the ticket is still valid.
+     *
+     * @param code The printed ticket code.
+     * @return The matching Event, or null if no valid ticket has this code.
+     */
+    public Event getEventByTicketCode(String code) {
+        long value = ticketCodeAllocator.parse(code);
+        if (value < 0) {
+            return null;
+        }
+        Event event = eventsById.get(ticketCodeAllocator.eventIdOf(value));
+        if (event == null || event.getHall().getTicketByCode(value) == null) {
+            return null;
+        }
+        return event;
+    }
+
+    /**
+     * Retrieves an event by its id.
+     *
+     * @param id The id of the event.
+     * @return The matching Event object.
+     * @throws ThereIsNoSuchEvent If no event has this id.
+     */
+    public Event getEventById(long id) {
+        Event event = eventsById.get(id);
+        if (event == null) {
+            throw new ThereIsNoSuchEvent("There is no such event");
+        }
+        return event;
     }
 
     /**
@@ -77,12 +388,11 @@ public class EventBooker {
      * @throws RuntimeException If no matching event is found.
      */
     public Event getEventByNameAndDate(String name, LocalDateTime time) {
-        for (Event event : events) {
-            if (event.getName().equals(name) && event.getDate().isEqual(time)) {
-                return event;
-            }
+        Event event = eventsByNameAndDate.get(new EventKey(name, time));
+        if (event == null) {
+            throw new ThereIsNoSuchEvent("There is no such event");
         }
-        throw new ThereIsNoSuchEvent("There is no such event");
+        return event;
     }
 
     /**
@@ -92,13 +402,7 @@ public class EventBooker {
      * @return A list of matching Event objects.
      */
     public List<Event> getEventByName(String name) {
-        List<Event> result = new ArrayList<>();
-        for (Event event : events) {
-            if (event.getName().equals(name)) {
-                result.add(event);
-            }
-        }
-        return result;
+        return new ArrayList<>(eventsByName.getOrDefault(name, Collections.emptyList()));
     }
 
     /**
@@ -108,15 +412,45 @@ public class EventBooker {
      * @return A list of matching Event objects.
      */
     public List<Event> getEventByDate(LocalDateTime time) {
+        return new ArrayList<>(eventsByDate.getOrDefault(time, Collections.emptyList()));
+    }
+
+    /**
+     * Retrieves the events that take place between two dates, both inclusive, in date order.
+     *
+     * @param from The start of the date range.
+     * @param to   The end of the date range.
+     * @return A list of matching Event objects.
+     */
+    public List<Event> getEventsBetween(LocalDateTime from, LocalDateTime to) {
         List<Event> result = new ArrayList<>();
-        for (Event event : events) {
-            if (event.getDate().isEqual(time)) {
-                result.add(event);
-            }
+        for (List<Event> sameDate : eventsByDate.subMap(from, true, to, true).values()) {
+            result.addAll(sameDate);
         }
         return result;
     }
 
+    /**
+     * Removes an event from the name/date indexes.
+     *
+     * @param event The Event to be removed.
+     */
+    private void unindex(Event event) {
+        eventsByNameAndDate.remove(new EventKey(event.getName(), event.getDate()), event);
+        removeFromIndex(eventsByName, event.getName(), event);
+        removeFromIndex(eventsByDate, event.getDate(), event);
+    }
+
+    private static <K> void removeFromIndex(Map<K, List<Event>> index, K key, Event event) {
+        List<Event> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(event);
+            if (bucket.isEmpty()) {
+                index.remove(key, bucket);
+            }
+        }
+    }
+
     /**
      * Prints details of booked seats for a list of events.
      *
@@ -124,17 +458,42 @@ public class EventBooker {
      */
     public void printDetailsForBookedSeats(List<Event> eventByName) {
         for (Event event : eventByName) {
-            int counter = 0;
-            for (Row row : event.getHall().getRows()) {
-                counter++;
-                for (Seat seat : row.getSeats()) {
-                    if (seat.isBooked()) {
-                        System.out.println("On row number: " + counter
-                                + " seat with number " + seat.getNumber()
-                                + " is booked with note: " + seat.getNote());
-                    }
-                }
+            HallSnapshot hall = snapshot(event);
+            for (int i = hall.nextBooked(0); i >= 0; i = hall.nextBooked(i + 1)) {
+                Session.out().println("On row number: " + (i / hall.getLayout().getNUMBER_OF_SEATS() + 1)
+                        + " seat with number " + hall.getSeatLabel(i)
+                        + " is booked with note: " + hall.getNote(i));
+            }
+        }
+    }
+
+    /**
+     * The composite (name, date) key of the event hash index.
+     */
+    private static final class EventKey {
+        private final String name;
+        private final LocalDateTime date;
+
+        private EventKey(String name, LocalDateTime date) {
+            this.name = name;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EventKey)) {
+                return false;
             }
+            EventKey other = (EventKey) o;
+            return name.equals(other.name) && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + date.hashCode();
         }
     }
 }
@@ -1,38 +1,130 @@
 package entities;
 
 import exceptions.ThereIsNoSuchSeat;
+import utils.HeapSeatStore;
+import utils.SeatStore;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * The Hall class represents a venue where events are held.
+ * The Hall class represents a venue where an event is held.
  * It manages seating arrangements, ticketing, and information about the hall.
+ * The seating template is an immutable {@link HallLayout} shared by every event in the same hall;
+ * the hall itself only holds the per-event occupancy, kept in a compact {@link SeatStates},
+ * and the tickets. {@link Row} and {@link Seat} objects are only created on demand as views.
+ * <p>
+ * A hall starts out with only its layout reference. The seat states and the tickets are
+ * materialized on the first booking, purchase or seat query, so events that are never touched
+ * during a session cost a few dozen bytes. Counters and ticket reads of an untouched hall
+ * answer from the layout without materializing it.
+ * </p>
+ * <p>
+ * A hall is safe for concurrent use. Seat mutations are lock-free compare-and-set transitions in the
+ * hall's {@link SeatStates}; ticket mutations lock the hall itself, so that lock is striped per event.
+ * Reads never lock: tickets are appended to a log that is only ever copied when it grows, so
+ * {@link #getTickets()} returns a view of the tickets issued so far without copying them, and
+ * {@link #snapshot()} returns a consistent, immutable view of the seats, notes and tickets.
+ * </p>
  */
 public class Hall {
-    private final int NUMBER_OF_SEATS;
-    private List<Row> rows;
-    private List<Ticket> tickets;
-    private String number;
-    private final int NUMBER_OF_ROWS;
-    private boolean isFull;
+    // a copy of Hall-6 takes milliseconds, so more attempts than this mean sales keep overtaking it
+    private static final int SNAPSHOT_ATTEMPTS = 16;
+
+    private final HallLayout layout;
+    private final SeatStore.Factory seatStoreFactory;
+    private volatile SeatStates seatStates;
+    // built from the log on first use, so a restored hall does not index tickets that are never looked up
+    private volatile Map<Long, Ticket> tickets;
+    // the tickets and their count are published together, so a reader never sees one without the other
+    private volatile TicketLog ticketLog;
+    private final AtomicInteger ticketSerial;
+    private volatile HallSnapshot lastSnapshot;
+
+    /**
+     * Constructs a Hall for an event with the given layout.
+     * Every seat is free; the seat states are only allocated when first needed, on the heap.
+     *
+     * @param layout The shared seating template of the hall.
+     */
+    public Hall(HallLayout layout) {
+        this(layout, HeapSeatStore.FACTORY);
+    }
 
     /**
-     * Constructs a Hall with the specified number, number of rows, and its full status.
-     * Initializes the seating arrangement by creating rows and seats.
+     * Constructs a Hall for an event with the given layout, whose seat states are kept in a store of
+     * the given factory. Every seat is free; the store is only created when first needed.
      *
-     * @param number The number identifier of the hall.
-     * @param NUMBER_OF_ROWS The total number of rows in the hall.
-     * @param isFull A flag indicating whether the hall is full or not.
+     * @param layout           The shared seating template of the hall.
+     * @param seatStoreFactory The factory of the store of the seat states.
      */
-    public Hall(String number, int NUMBER_OF_ROWS, boolean isFull) {
-        this.rows = new ArrayList<>();
-        this.number = number;
-        this.NUMBER_OF_ROWS = NUMBER_OF_ROWS;
-        this.isFull = isFull;
-        this.tickets = new ArrayList<>();
-        this.NUMBER_OF_SEATS = 5;
-        initializeRows();
+    public Hall(HallLayout layout, SeatStore.Factory seatStoreFactory) {
+        this.layout = layout;
+        this.seatStoreFactory = seatStoreFactory;
+        this.ticketLog = TicketLog.EMPTY;
+        this.ticketSerial = new AtomicInteger();
+    }
+
+    /**
+     * The tickets issued for a hall, in the order they were issued: the first {@code count} entries
+     * of an array. A log never changes once it is published. Appending writes past the count of the
+     * current log into the same array when there is room, and publishes a new log with the new count,
+     * so readers of the old log can go on sharing the array; any other change copies it.
+     */
+    private static final class TicketLog {
+        private static final TicketLog EMPTY = new TicketLog(new Ticket[0], 0);
+
+        private final Ticket[] entries;
+        private final int count;
+
+        private TicketLog(Ticket[] entries, int count) {
+            this.entries = entries;
+            this.count = count;
+        }
+
+        private TicketLog append(Ticket[] issued, int added) {
+            Ticket[] log = entries;
+            if (count + added > log.length) {
+                log = Arrays.copyOf(log, Math.max(8, Math.max(log.length * 2, count + added)));
+            }
+            System.arraycopy(issued, 0, log, count, added);
+            return new TicketLog(log, count + added);
+        }
+
+        private TicketLog replace(Ticket previous, Ticket ticket) {
+            Ticket[] log = Arrays.copyOf(entries, entries.length);
+            log[Arrays.asList(log).indexOf(previous)] = ticket;
+            return new TicketLog(log, count);
+        }
+
+        private TicketLog remove(Ticket ticket) {
+            Ticket[] log = new Ticket[entries.length];
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (entries[i] != ticket) {
+                    log[kept++] = entries[i];
+                }
+            }
+            return new TicketLog(log, kept);
+        }
+
+        private List<Ticket> asList() {
+            return count == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(entries).subList(0, count));
+        }
+    }
+
+    /**
+     * Returns the shared seating template of the hall.
+     *
+     * @return The HallLayout.
+     */
+    public HallLayout getLayout() {
+        return layout;
     }
 
     /**
@@ -41,77 +133,291 @@ public class Hall {
      * @return The maximum number of tickets.
      */
     public int getMaxAmountOfTickets() {
-        return NUMBER_OF_SEATS * NUMBER_OF_ROWS;
+        return layout.getCapacity();
     }
 
     /**
-     * Adds a ticket to the list of tickets issued for this hall.
+     * Adds a ticket to the tickets issued for this hall.
      *
      * @param ticket The ticket to be added.
      * @return The added ticket.
      */
-    public Ticket addTicket(Ticket ticket) {
-        tickets.add(ticket);
-        return ticket;
+    public synchronized Ticket addTicket(Ticket ticket) {
+        SeatStates states = getSeatStates();
+        states.beginWrite();
+        try {
+            Ticket previous = ticketIndex().put(ticket.getCode(), ticket);
+            if (previous != null) {
+                ticketLog = ticketLog.replace(previous, ticket);
+            } else {
+                ticketLog = ticketLog.append(new Ticket[]{ticket}, 1);
+            }
+            return ticket;
+        } finally {
+            states.endWrite();
+        }
     }
 
     /**
-     * Removes a ticket from the list of tickets issued for this hall.
+     * Removes a ticket from the tickets issued for this hall.
      *
      * @param ticket The ticket to be removed.
      */
-    public void removeTicket(Ticket ticket) {
-        tickets.remove(ticket);
+    public synchronized void removeTicket(Ticket ticket) {
+        if (ticketLog.count == 0 || !ticketIndex().containsKey(ticket.getCode())) {
+            return;
+        }
+        SeatStates states = getSeatStates();
+        states.beginWrite();
+        try {
+            if (tickets.remove(ticket.getCode(), ticket)) {
+                ticketLog = ticketLog.remove(ticket);
+            }
+        } finally {
+            states.endWrite();
+        }
     }
 
     /**
-     * Returns the list of rows in this hall.
+     * Returns the next ticket serial of this hall. Serials are never reused, even when tickets are removed,
+     * so every ticket issued for the hall gets a distinct code.
+     *
+     * @return The next serial, starting at 0.
+     */
+    public int nextTicketSerial() {
+        return ticketSerial.getAndIncrement();
+    }
+
+    /**
+     * Returns the number of ticket serials handed out so far, i.e. the next serial.
+     *
+     * @return The number of serials handed out.
+     */
+    public int getTicketSerial() {
+        return ticketSerial.get();
+    }
+
+    /**
+     * Takes over the seat states that the store factory of this hall kept from before a restart, if
+     * they are exactly those of the event copied by the checkpoint at the given journal position.
+     * Must be called before the hall is shared, and followed by {@link #restore} without words.
+     *
+     * @param eventId  The id of the event of this hall.
+     * @param position The position of the event in the checkpoint.
+     * @return True if the seat states were taken over, false if they must be restored from the snapshot.
+     */
+    public synchronized boolean recoverStates(long eventId, long position) {
+        SeatStates states = SeatStates.recover(layout.getNUMBER_OF_ROWS(), layout.getNUMBER_OF_SEATS(),
+                seatStoreFactory, eventId, position);
+        if (states == null) {
+            return false;
+        }
+        this.seatStates = states;
+        return true;
+    }
+
+    /**
+     * Restores the seats, notes and tickets of this hall from a saved snapshot.
+     * Must be called before the hall is shared, e.g. while a file is being opened.
+     * The tickets are only indexed by code on the first lookup or change of a ticket.
+     *
+     * @param words        The saved state words, as returned by {@link HallSnapshot#copyWords()}, or
+     *                     null to keep the seat states taken over by {@link #recoverStates(long, long)}.
+     *                     An empty array leaves every seat free and the seat states unbuilt until first used.
+     * @param noteSeats    The indexes of the seats with a note.
+     * @param notes        The notes of those seats.
+     * @param tickets      The tickets, in the order they were issued.
+     * @param ticketSerial The number of ticket serials handed out.
+     * @return The current Hall instance for method chaining.
+     * @throws IllegalArgumentException If the words do not match the layout of the hall, or are empty
+     *                                  while there are notes.
+     */
+    public synchronized Hall restore(long[] words, int[] noteSeats, String[] notes, Ticket[] tickets, int ticketSerial) {
+        SeatStates states = seatStates;
+        if (words != null && words.length == 0) {
+            if (noteSeats.length > 0) {
+                throw new IllegalArgumentException("The seat states do not match the hall");
+            }
+            states = null;
+        } else if (words != null) {
+            states = new SeatStates(layout.getNUMBER_OF_ROWS(), layout.getNUMBER_OF_SEATS(), seatStoreFactory);
+            states.restore(words);
+        }
+        for (int i = 0; i < noteSeats.length; i++) {
+            states.setNote(noteSeats[i], notes[i]);
+        }
+        this.tickets = null;
+        this.ticketLog = new TicketLog(Arrays.copyOf(tickets, Math.max(8, tickets.length)), tickets.length);
+        this.ticketSerial.set(ticketSerial);
+        this.lastSnapshot = null;
+        this.seatStates = states;
+        return this;
+    }
+
+    /**
+     * Adds tickets in bulk, as when a journal is replayed, and raises the ticket serial to at least the given one.
+     *
+     * @param issued       The tickets, in the order they were issued.
+     * @param count        The number of tickets to take from the array.
+     * @param ticketSerial The number of ticket serials handed out, at least.
+     * @return The current Hall instance for method chaining.
+     */
+    public synchronized Hall appendTickets(Ticket[] issued, int count, int ticketSerial) {
+        SeatStates states = getSeatStates();
+        states.beginWrite();
+        try {
+            Map<Long, Ticket> byCode = tickets;
+            if (byCode != null) {
+                for (int i = 0; i < count; i++) {
+                    byCode.put(issued[i].getCode(), issued[i]);
+                }
+            }
+            ticketLog = ticketLog.append(issued, count);
+            if (this.ticketSerial.get() < ticketSerial) {
+                this.ticketSerial.set(ticketSerial);
+            }
+        } finally {
+            states.endWrite();
+        }
+        return this;
+    }
+
+    /**
+     * Retrieves a ticket by its code.
+     *
+     * @param code The ticket code.
+     * @return The matching Ticket object, or null if the hall has no ticket with this code.
+     */
+    public Ticket getTicketByCode(long code) {
+        Map<Long, Ticket> byCode = tickets;
+        if (byCode == null) {
+            if (ticketLog.count == 0) {
+                return null;
+            }
+            byCode = ticketIndex();
+        }
+        return byCode.get(code);
+    }
+
+    /**
+     * Returns the list of rows in this hall. The row views are created on each call.
      *
      * @return A list of Row objects.
      */
     public List<Row> getRows() {
+        List<Row> rows = new ArrayList<>(layout.getNUMBER_OF_ROWS());
+        for (int i = 0; i < layout.getNUMBER_OF_ROWS(); i++) {
+            rows.add(new Row(this, i));
+        }
         return rows;
     }
 
     /**
-     * Initializes the rows and their corresponding seats in the hall.
+     * Returns a view of a single row of this hall.
+     *
+     * @param index The zero-based row index.
+     * @return The Row view.
+     * @throws ThereIsNoSuchSeat If the hall has no such row.
      */
-    private void initializeRows() {
-        for (int i = 0; i < NUMBER_OF_ROWS; i++) {
-            rows.add(new Row(NUMBER_OF_SEATS));
-            rows.get(i).initializeSeats(i + 1);
+    public Row getRow(int index) {
+        if (index < 0 || index >= layout.getNUMBER_OF_ROWS()) {
+            throw new ThereIsNoSuchSeat("There is no such seat");
         }
+        return new Row(this, index);
     }
 
     /**
-     * Sets the rows of the hall.
+     * Returns the seat states that hold the booked and payed flags and notes of this hall,
+     * materializing them on first use.
      *
-     * @param rows The new list of rows.
-     * @return The current Hall instance for method chaining.
+     * @return The SeatStates of the hall.
      */
-    public Hall setRows(List<Row> rows) {
-        this.rows = rows;
-        return this;
+    public SeatStates getSeatStates() {
+        SeatStates states = seatStates;
+        if (states == null) {
+            synchronized (this) {
+                states = seatStates;
+                if (states == null) {
+                    states = new SeatStates(layout.getNUMBER_OF_ROWS(), layout.getNUMBER_OF_SEATS(), seatStoreFactory);
+                    seatStates = states;
+                }
+            }
+        }
+        return states;
     }
 
     /**
-     * Returns the number identifier of the hall.
+     * Checks whether the seat states of this hall have been allocated yet.
      *
-     * @return The hall number.
+     * @return True if the hall has been materialized, false otherwise.
      */
-    public String getNumber() {
-        return number;
+    public boolean isMaterialized() {
+        return seatStates != null;
     }
 
     /**
-     * Sets the number identifier of the hall.
+     * Returns the index of the first booked seat at or after the given index,
+     * without materializing an untouched hall.
      *
-     * @param number The new hall number.
-     * @return The current Hall instance for method chaining.
+     * @param fromIndex The index to start searching from.
+     * @return The index of the next booked seat, or -1 if there is none.
      */
-    public Hall setNumber(String number) {
-        this.number = number;
-        return this;
+    public int nextBooked(int fromIndex) {
+        SeatStates states = seatStates;
+        return states == null ? -1 : states.nextBooked(fromIndex);
+    }
+
+    /**
+     * Returns the index of a seat within the seat states.
+     *
+     * @param row    The one-based row number.
+     * @param number The seat number, e.g. "3A".
+     * @return The seat index.
+     * @throws ThereIsNoSuchSeat If the hall has no such seat.
+     */
+    public int getSeatIndex(int row, String number) {
+        return layout.getSeatIndex(row, number);
+    }
+
+    /**
+     * Returns the index of a seat within the seat states from its seat number alone.
+     *
+     * @param number The seat number, e.g. "3A".
+     * @return The seat index.
+     * @throws ThereIsNoSuchSeat If the hall has no such seat.
+     */
+    public int getSeatIndex(String number) {
+        return layout.getSeatIndex(number);
+    }
+
+    /**
+     * Returns the seat number for the given position, e.g. "3A" for the first seat on the third row.
+     *
+     * @param row    The zero-based row index.
+     * @param column The zero-based column index.
+     * @return The seat number.
+     */
+    public String getSeatLabel(int row, int column) {
+        return layout.getSeatLabel(row * layout.getNUMBER_OF_SEATS() + column);
+    }
+
+    /**
+     * Returns the seat number for the given seat index.
+     *
+     * @param index The seat index.
+     * @return The seat number.
+     */
+    public String getSeatLabel(int index) {
+        return layout.getSeatLabel(index);
+    }
+
+    /**
+     * Returns the number identifier of the hall.
+     *
+     * @return The hall number.
+     */
+    public String getNumber() {
+        return layout.getNumber();
     }
 
     /**
@@ -120,36 +426,66 @@ public class Hall {
      * @return The number of rows.
      */
     public int getNUMBER_OF_ROWS() {
-        return NUMBER_OF_ROWS;
+        return layout.getNUMBER_OF_ROWS();
     }
 
     /**
-     * Returns whether the hall is full or not.
+     * Returns the number of seats in each row of the hall.
+     *
+     * @return The number of seats per row.
+     */
+    public int getNUMBER_OF_SEATS() {
+        return layout.getNUMBER_OF_SEATS();
+    }
+
+    /**
+     * Returns whether the hall is full or not, i.e. whether every seat is payed for.
      *
      * @return True if the hall is full, false otherwise.
      */
     public boolean isFull() {
-        return isFull;
+        return getPayedCount() == getMaxAmountOfTickets();
     }
 
     /**
-     * Sets the full status of the hall.
+     * Returns the number of booked seats in the hall.
      *
-     * @param full The new full status.
-     * @return The current Hall instance for method chaining.
+     * @return The number of booked seats.
      */
-    public Hall setFull(boolean full) {
-        isFull = full;
-        return this;
+    public int getBookedCount() {
+        SeatStates states = seatStates;
+        return states == null ? 0 : states.getBookedCount();
+    }
+
+    /**
+     * Returns the number of payed seats in the hall.
+     *
+     * @return The number of payed seats.
+     */
+    public int getPayedCount() {
+        SeatStates states = seatStates;
+        return states == null ? 0 : states.getPayedCount();
     }
 
     /**
-     * Returns the list of tickets issued for this hall.
+     * Returns the number of seats in the hall that are neither booked nor payed.
+     *
+     * @return The number of free seats.
+     */
+    public int getFreeCount() {
+        SeatStates states = seatStates;
+        return states == null ? getMaxAmountOfTickets() : states.getFreeCount();
+    }
+
+    /**
+     * Returns the tickets issued for this hall so far, in the order they were issued.
+     * The list is an unmodifiable view that shares the ticket log instead of copying it,
+     * and does not change when more tickets are issued.
      *
      * @return A list of Ticket objects.
      */
     public List<Ticket> getTickets() {
-        return tickets;
+        return ticketLog.asList();
     }
 
     /**
@@ -158,11 +494,202 @@ public class Hall {
      * @param tickets The new list of tickets.
      * @return The current Hall instance for method chaining.
      */
-    public Hall setTickets(List<Ticket> tickets) {
-        this.tickets = tickets;
+    public synchronized Hall setTickets(List<Ticket> tickets) {
+        SeatStates states = getSeatStates();
+        states.beginWrite();
+        try {
+            this.tickets = null;
+            this.ticketLog = TicketLog.EMPTY;
+            for (Ticket ticket : tickets) {
+                addTicket(ticket);
+            }
+        } finally {
+            states.endWrite();
+        }
         return this;
     }
 
+    /**
+     * Returns the index of the tickets by code, building it from the ticket log if needed.
+     *
+     * @return The index.
+     */
+    private synchronized Map<Long, Ticket> ticketIndex() {
+        Map<Long, Ticket> byCode = tickets;
+        if (byCode == null) {
+            TicketLog log = ticketLog;
+            byCode = new ConcurrentHashMap<>(Math.max(16, log.count * 4 / 3 + 1));
+            for (int i = 0; i < log.count; i++) {
+                byCode.put(log.entries[i].getCode(), log.entries[i]);
+            }
+            tickets = byCode;
+        }
+        return byCode;
+    }
+
+    /**
+     * Returns a view of the seats and tickets of this hall like {@link #snapshot()}, but without the notes.
+     * <p>
+     * Only the state words are copied, so it takes microseconds even for a large hall, where reading the
+     * notes of every booked seat takes far longer. A checkpoint takes it between two changes of the hall
+     * and reads the notes afterwards with {@link #addNotes(HallSnapshot)}, while sales go on.
+     * </p>
+     *
+     * @return The HallSnapshot, without notes.
+     */
+    public HallSnapshot copyStates() {
+        SeatStates states = seatStates;
+        if (states == null) {
+            return new HallSnapshot(layout, 0, null, new int[0], new String[0], Collections.emptyList());
+        }
+        for (int attempt = 0; ; attempt++) {
+            long version = states.readVersion();
+            if (version >= 0) {
+                long[] words = states.copyWords();
+                List<Ticket> issued = getTickets();
+                if (states.validate(version)) {
+                    return new HallSnapshot(layout, version, words, new int[0], new String[0], issued);
+                }
+            }
+            if (attempt < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Records that the seat states of this hall are those of the last {@link #copyStates()}, taken by
+     * a checkpoint at the given journal position, so their store can hand them back after a restart.
+     * Must be called on the writer of the event, right after the copy.
+     *
+     * @param eventId  The id of the event of this hall.
+     * @param position The position of the event in the checkpoint.
+     */
+    public void checkpointed(long eventId, long position) {
+        SeatStates states = seatStates;
+        if (states != null) {
+            states.checkpointed(eventId, position);
+        }
+    }
+
+    /**
+     * Writes the store of the seat states of this hall to storage, if it has any.
+     */
+    public void forceStates() {
+        SeatStates states = seatStates;
+        if (states != null) {
+            states.force();
+        }
+    }
+
+    /**
+     * Adds the current notes of the booked seats of a view returned by {@link #copyStates()}.
+     * The notes may be newer than the seat states of the view.
+     *
+     * @param copy The view without notes.
+     * @return A HallSnapshot with the same seats and tickets, and the notes of its booked seats.
+     */
+    public HallSnapshot addNotes(HallSnapshot copy) {
+        SeatStates states = seatStates;
+        if (states == null) {
+            return copy;
+        }
+        List<Integer> noted = new ArrayList<>();
+        List<String> notes = new ArrayList<>();
+        for (int i = copy.nextBooked(0); i >= 0; i = copy.nextBooked(i + 1)) {
+            String note = states.getNote(i);
+            if (!note.isEmpty()) {
+                noted.add(i);
+                notes.add(note);
+            }
+        }
+        int[] noteSeats = new int[noted.size()];
+        for (int i = 0; i < noteSeats.length; i++) {
+            noteSeats[i] = noted.get(i);
+        }
+        return new HallSnapshot(layout, copy.getVersion(), copy.copyWords(), noteSeats,
+                notes.toArray(new String[0]), copy.getTickets());
+    }
+
+    /**
+     * Returns a consistent, immutable view of the seats, notes and tickets of this hall at one point in time.
+     * <p>
+     * The state words are copied between two reads of the write counters of the {@link SeatStates}, and
+     * the copy is retried if a change started in between; writers are never held up. A snapshot of an
+     * unchanged hall is cached and returned again, and an untouched hall is not materialized.
+     * </p>
+     * <p>
+     * The copy is retried for as long as it takes, so while sales go on it must be taken on the writer
+     * of the event, between two of them. Elsewhere, {@link EventBooker#snapshot(Event)} tries
+     * {@link #trySnapshot()} first and only falls back to the writer if that fails.
+     * </p>
+     *
+     * @return The HallSnapshot.
+     */
+    public HallSnapshot snapshot() {
+        HallSnapshot snapshot;
+        do {
+            snapshot = snapshot(Integer.MAX_VALUE);
+        } while (snapshot == null);
+        return snapshot;
+    }
+
+    /**
+     * Returns a view of this hall like {@link #snapshot()}, but gives up after a few attempts that were
+     * all overtaken by changes, as happens on a large hall while sales are busy.
+     *
+     * @return The HallSnapshot, or null if every attempt was overtaken.
+     */
+    public HallSnapshot trySnapshot() {
+        return snapshot(SNAPSHOT_ATTEMPTS);
+    }
+
+    private HallSnapshot snapshot(int maxAttempts) {
+        SeatStates states = seatStates;
+        if (states == null) {
+            return new HallSnapshot(layout, 0, null, new int[0], new String[0], Collections.emptyList());
+        }
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            long version = states.readVersion();
+            if (version >= 0) {
+                HallSnapshot cached = lastSnapshot;
+                if (cached != null && cached.getVersion() == version) {
+                    return cached;
+                }
+                long[] words = states.copyWords();
+                List<Ticket> issued = getTickets();
+                List<Integer> noted = new ArrayList<>();
+                List<String> notes = new ArrayList<>();
+                int size = layout.getCapacity();
+                for (int i = HallSnapshot.nextBooked(words, size, 0); i >= 0; i = HallSnapshot.nextBooked(words, size, i + 1)) {
+                    String note = states.getNote(i);
+                    if (!note.isEmpty()) {
+                        noted.add(i);
+                        notes.add(note);
+                    }
+                }
+                if (states.validate(version)) {
+                    int[] noteSeats = new int[noted.size()];
+                    for (int i = 0; i < noteSeats.length; i++) {
+                        noteSeats[i] = noted.get(i);
+                    }
+                    HallSnapshot snapshot = new HallSnapshot(layout, version, words, noteSeats,
+                            notes.toArray(new String[0]), issued);
+                    lastSnapshot = snapshot;
+                    return snapshot;
+                }
+            }
+            if (attempt < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return null;
+    }
+
     /**
      * Retrieves a ticket based on the seat number.
      *
@@ -171,7 +698,7 @@ public class Hall {
      * @throws RuntimeException If no matching ticket is found.
      */
     public Ticket getTicketBySeatNumber(String number) {
-        for (Ticket ticket : tickets) {
+        for (Ticket ticket : getTickets()) {
             if (ticket.getSeatNumber().equals(number))
                 return ticket;
         }
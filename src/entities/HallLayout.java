@@ -0,0 +1,159 @@
+package entities;
+
+import exceptions.ThereIsNoSuchSeat;
+
+/**
+ * The HallLayout class is the immutable seating template of a hall: its number,
+ * the number of rows, the number of seats per row and the seat numbers.
+ * One layout is owned by {@link Halls} and shared by every {@link Hall} created for an event,
+ * so the seat numbers of a hall are stored once no matter how many events take place in it.
+ * <p>
+ * A seat number is the row number followed by a column label: A to Z, then AA, AB and so on,
+ * like spreadsheet columns. Seat numbers map to seat indexes arithmetically, so a seat lookup
+ * never searches the row.
+ * </p>
+ */
+public class HallLayout {
+    private final String number;
+    private final int NUMBER_OF_ROWS;
+    private final int NUMBER_OF_SEATS;
+    private final String[] columnLabels;
+
+    /**
+     * Constructs a HallLayout with the given number and geometry.
+     *
+     * @param number          The number identifier of the hall.
+     * @param NUMBER_OF_ROWS  The total number of rows in the hall.
+     * @param NUMBER_OF_SEATS The number of seats in each row.
+     * @throws IllegalArgumentException If the geometry is empty or too large to address.
+     */
+    public HallLayout(String number, int NUMBER_OF_ROWS, int NUMBER_OF_SEATS) {
+        if (NUMBER_OF_ROWS <= 0 || NUMBER_OF_SEATS <= 0
+                || (long) NUMBER_OF_ROWS * NUMBER_OF_SEATS > Integer.MAX_VALUE - 64) {
+            throw new IllegalArgumentException("Invalid hall size: " + NUMBER_OF_ROWS + " x " + NUMBER_OF_SEATS);
+        }
+        this.number = number;
+        this.NUMBER_OF_ROWS = NUMBER_OF_ROWS;
+        this.NUMBER_OF_SEATS = NUMBER_OF_SEATS;
+        this.columnLabels = new String[NUMBER_OF_SEATS];
+        for (int column = 0; column < NUMBER_OF_SEATS; column++) {
+            columnLabels[column] = columnLabel(column);
+        }
+    }
+
+    /**
+     * Returns the number identifier of the hall.
+     *
+     * @return The hall number.
+     */
+    public String getNumber() {
+        return number;
+    }
+
+    /**
+     * Returns the total number of rows in the hall.
+     *
+     * @return The number of rows.
+     */
+    public int getNUMBER_OF_ROWS() {
+        return NUMBER_OF_ROWS;
+    }
+
+    /**
+     * Returns the number of seats in each row of the hall.
+     *
+     * @return The number of seats per row.
+     */
+    public int getNUMBER_OF_SEATS() {
+        return NUMBER_OF_SEATS;
+    }
+
+    /**
+     * Returns the total number of seats in the hall.
+     *
+     * @return The number of seats.
+     */
+    public int getCapacity() {
+        return NUMBER_OF_ROWS * NUMBER_OF_SEATS;
+    }
+
+    /**
+     * Returns the seat number for the given seat index, e.g. "3A" for the first seat on the third row.
+     *
+     * @param index The seat index.
+     * @return The seat number.
+     */
+    public String getSeatLabel(int index) {
+        return (index / NUMBER_OF_SEATS + 1) + columnLabels[index % NUMBER_OF_SEATS];
+    }
+
+    /**
+     * Returns the index of a seat from its row and seat number, e.g. row 3 and "3AB".
+     * The seat number must start with the row number.
+     *
+     * @param row    The one-based row number.
+     * @param number The seat number.
+     * @return The seat index.
+     * @throws ThereIsNoSuchSeat If the hall has no such seat.
+     */
+    public int getSeatIndex(int row, String number) {
+        if (row < 1 || row > NUMBER_OF_ROWS) {
+            throw new ThereIsNoSuchSeat("There is no such seat");
+        }
+        int length = number.length();
+        int position = 0;
+        int rowInLabel = 0;
+        while (position < length && number.charAt(position) >= '0' && number.charAt(position) <= '9'
+                && rowInLabel <= NUMBER_OF_ROWS) {
+            rowInLabel = rowInLabel * 10 + (number.charAt(position++) - '0');
+        }
+        if (rowInLabel != row || position == length) {
+            throw new ThereIsNoSuchSeat("There is no such seat");
+        }
+        int column = 0;
+        while (position < length) {
+            char letter = number.charAt(position++);
+            if (letter < 'A' || letter > 'Z' || column > NUMBER_OF_SEATS) {
+                throw new ThereIsNoSuchSeat("There is no such seat");
+            }
+            column = column * 26 + (letter - 'A' + 1);
+        }
+        if (column > NUMBER_OF_SEATS) {
+            throw new ThereIsNoSuchSeat("There is no such seat");
+        }
+        return (row - 1) * NUMBER_OF_SEATS + column - 1;
+    }
+
+    /**
+     * Returns the index of a seat from its seat number alone, e.g. "3AB"; the row is read from the number.
+     *
+     * @param number The seat number.
+     * @return The seat index.
+     * @throws ThereIsNoSuchSeat If the hall has no such seat.
+     */
+    public int getSeatIndex(String number) {
+        int row = 0;
+        for (int position = 0; position < number.length() && row <= NUMBER_OF_ROWS; position++) {
+            char digit = number.charAt(position);
+            if (digit < '0' || digit > '9') {
+                break;
+            }
+            row = row * 10 + (digit - '0');
+        }
+        return getSeatIndex(row, number);
+    }
+
+    /**
+     * Returns the label of a column: A to Z for the first 26 columns, then AA, AB and so on.
+     *
+     * @param column The zero-based column index.
+     * @return The column label.
+     */
+    private static String columnLabel(int column) {
+        StringBuilder label = new StringBuilder();
+        for (int value = column + 1; value > 0; value = (value - 1) / 26) {
+            label.append((char) ('A' + (value - 1) % 26));
+        }
+        return label.reverse().toString();
+    }
+}
@@ -0,0 +1,252 @@
+package entities;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The HallSnapshot class is an immutable, point-in-time view of the seats, notes and tickets of a
+ * {@link Hall}, as returned by {@link Hall#snapshot()}.
+ * <p>
+ * The seat states are a copy of the state words, two bits per seat as in {@link SeatStates}, followed
+ * by the words that mark the seats paid without a booking. The notes are copied for the booked seats
+ * only, and the tickets are the prefix of the hall's append-only ticket log that existed when the
+ * snapshot was taken, shared rather than copied.
+ * A snapshot can be read for as long as needed while sales continue.
+ * </p>
+ */
+public class HallSnapshot {
+    private static final int SEATS_PER_WORD = 32;
+    private static final long BOOKED_BITS = 0xAAAAAAAAAAAAAAAAL;
+    private static final long LOW_BITS = 0x5555555555555555L;
+
+    private final HallLayout layout;
+    private final long version;
+    private final long[] words;
+    private final int[] noteSeats;
+    private final String[] notes;
+    private final List<Ticket> tickets;
+    private final int bookedCount;
+    private final int payedCount;
+    private final int freeCount;
+
+    /**
+     * Constructs a snapshot from the copied state of a hall.
+     *
+     * @param layout    The layout of the hall.
+     * @param version   The version of the seat states the copy was validated against.
+     * @param words     The copied state words and marks, or null if every seat is free.
+     * @param noteSeats The indexes of the booked seats with a note, ascending.
+     * @param notes     The notes of those seats.
+     * @param tickets   The tickets issued so far.
+     */
+    HallSnapshot(HallLayout layout, long version, long[] words, int[] noteSeats, String[] notes, List<Ticket> tickets) {
+        this.layout = layout;
+        this.version = version;
+        this.words = words;
+        this.noteSeats = noteSeats;
+        this.notes = notes;
+        this.tickets = tickets;
+        int booked = 0;
+        int payed = 0;
+        int taken = 0;
+        if (words != null) {
+            int stateWords = stateWords(layout.getCapacity());
+            for (int i = 0; i < stateWords; i++) {
+                long word = words[i];
+                long high = word & BOOKED_BITS;
+                long low = word & LOW_BITS;
+                booked += Long.bitCount(high & ~marks(words, stateWords, i));
+                payed += Long.bitCount(high & (low << 1));
+                // held seats, and booked or paid ones whether marked or not, are all taken
+                taken += Long.bitCount(high) + Long.bitCount(low & ~(high >>> 1));
+            }
+        }
+        this.bookedCount = booked;
+        this.payedCount = payed;
+        this.freeCount = layout.getCapacity() - taken;
+    }
+
+    /**
+     * Returns the version of the seat states this snapshot shows. It grows with every change of the hall.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the layout of the hall.
+     *
+     * @return The HallLayout.
+     */
+    public HallLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns the state of the seat at the given index.
+     *
+     * @param index The seat index.
+     * @return One of the states of {@link SeatStates}.
+     */
+    public int getState(int index) {
+        if (words == null) {
+            return SeatStates.FREE;
+        }
+        return (int) ((words[index / SEATS_PER_WORD] >>> ((index % SEATS_PER_WORD) * 2)) & 0b11L);
+    }
+
+    /**
+     * Checks if the seat at the given index is booked, i.e. booked, or paid after being booked.
+     *
+     * @param index The seat index.
+     * @return True if the seat is booked, false otherwise.
+     */
+    public boolean isBooked(int index) {
+        int state = getState(index);
+        if (state == SeatStates.PAID) {
+            long marks = marks(words, stateWords(layout.getCapacity()), index / SEATS_PER_WORD);
+            return (marks & (2L << ((index % SEATS_PER_WORD) * 2))) == 0;
+        }
+        return state == SeatStates.BOOKED;
+    }
+
+    /**
+     * Checks if the seat at the given index is payed for.
+     *
+     * @param index The seat index.
+     * @return True if the seat is payed for, false otherwise.
+     */
+    public boolean isPayed(int index) {
+        return getState(index) == SeatStates.PAID;
+    }
+
+    /**
+     * Returns the index of the first booked seat at or after the given index.
+     *
+     * @param fromIndex The index to start searching from.
+     * @return The index of the next booked seat, or -1 if there is none.
+     */
+    public int nextBooked(int fromIndex) {
+        return nextBooked(words, layout.getCapacity(), fromIndex);
+    }
+
+    /**
+     * Returns the index of the first booked seat at or after the given index in copied state words.
+     *
+     * @param words     The state words, or null if every seat is free.
+     * @param size      The number of seats.
+     * @param fromIndex The index to start searching from.
+     * @return The index of the next booked seat, or -1 if there is none.
+     */
+    static int nextBooked(long[] words, int size, int fromIndex) {
+        if (words == null || fromIndex >= size) {
+            return -1;
+        }
+        int stateWords = stateWords(size);
+        int word = fromIndex / SEATS_PER_WORD;
+        long bits = words[word] & ~marks(words, stateWords, word) & BOOKED_BITS & (-1L << ((fromIndex % SEATS_PER_WORD) * 2));
+        while (true) {
+            if (bits != 0) {
+                int index = word * SEATS_PER_WORD + Long.numberOfTrailingZeros(bits) / 2;
+                return index < size ? index : -1;
+            }
+            if (++word == stateWords) {
+                return -1;
+            }
+            bits = words[word] & ~marks(words, stateWords, word) & BOOKED_BITS;
+        }
+    }
+
+    /**
+     * Returns a copy of the state words of the hall, two bits per seat and 32 seats per word,
+     * followed by the words that mark the seats paid without a booking, as in {@link SeatStates}.
+     *
+     * @return The state words and marks, or an empty array if the seat states of the hall were never
+     *         built, so every seat is free.
+     */
+    public long[] copyWords() {
+        return words == null ? new long[0] : words.clone();
+    }
+
+    private static int stateWords(int size) {
+        return (size + SEATS_PER_WORD - 1) / SEATS_PER_WORD;
+    }
+
+    /**
+     * Returns the marks of the seats of a state word that were paid without a booking; words saved
+     * without marks have none.
+     */
+    private static long marks(long[] words, int stateWords, int word) {
+        return words.length == stateWords ? 0 : words[stateWords + word];
+    }
+
+    /**
+     * Returns the indexes of the booked seats that have a note.
+     *
+     * @return The seat indexes, ascending.
+     */
+    public int[] getNoteSeats() {
+        return noteSeats.clone();
+    }
+
+    /**
+     * Returns the note of a booked seat.
+     *
+     * @param index The seat index.
+     * @return The note, or an empty string if the seat has none or is not booked.
+     */
+    public String getNote(int index) {
+        int position = Arrays.binarySearch(noteSeats, index);
+        return position < 0 ? "" : notes[position];
+    }
+
+    /**
+     * Returns the seat number of the seat at the given index.
+     *
+     * @param index The seat index.
+     * @return The seat number, e.g. "3A".
+     */
+    public String getSeatLabel(int index) {
+        return layout.getSeatLabel(index);
+    }
+
+    /**
+     * Returns the tickets issued for the hall, in the order they were issued.
+     *
+     * @return An unmodifiable list of tickets.
+     */
+    public List<Ticket> getTickets() {
+        return tickets;
+    }
+
+    /**
+     * Returns the number of booked seats, i.e. booked, or paid after being booked. Seats paid without
+     * a booking are not counted.
+     *
+     * @return The number of booked seats.
+     */
+    public int getBookedCount() {
+        return bookedCount;
+    }
+
+    /**
+     * Returns the number of payed seats.
+     *
+     * @return The number of payed seats.
+     */
+    public int getPayedCount() {
+        return payedCount;
+    }
+
+    /**
+     * Returns the number of free seats, i.e. neither booked, paid nor held.
+     *
+     * @return The number of free seats.
+     */
+    public int getFreeCount() {
+        return freeCount;
+    }
+}
@@ -1,32 +1,38 @@
 package entities;
 
 import exceptions.ThereIsNoSuchHall;
+import utils.HeapSeatStore;
+import utils.SeatStore;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * The Halls class manages a collection of halls.
- * It provides methods for adding and retrieving halls by their name.
+ * It owns the shared {@link HallLayout} of every hall and provides methods for adding
+ * and retrieving them by their name. The halls it creates keep their seat states in the stores of
+ * its {@link SeatStore.Factory}, on the heap unless set otherwise.
  */
 public class Halls {
-    private Map<String, Hall> hallMap;
+    private Map<String, HallLayout> hallMap;
+    private volatile SeatStore.Factory seatStoreFactory;
 
     /**
      * Constructs a Halls instance with an empty map of halls.
      */
     public Halls() {
         this.hallMap = new HashMap<>();
+        this.seatStoreFactory = HeapSeatStore.FACTORY;
     }
 
     /**
-     * Retrieves a hall by its name.
+     * Retrieves the layout of a hall by its name.
      *
      * @param name The name of the hall.
-     * @return The Hall object associated with the given name.
+     * @return The HallLayout associated with the given name.
      * @throws RuntimeException If no hall with the given name is found.
      */
-    public Hall getHallByName(String name) {
+    public HallLayout getLayoutByName(String name) {
         if (hallMap.containsKey(name)) {
             return hallMap.get(name);
         }
@@ -34,12 +40,34 @@ public class Halls {
     }
 
     /**
-     * Adds a hall to the collection.
+     * Creates a new hall for an event, sharing the layout of the hall with the given name.
      *
      * @param name The name of the hall.
-     * @param hall The Hall object to be added.
+     * @return A new Hall with every seat free.
+     * @throws RuntimeException If no hall with the given name is found.
+     */
+    public Hall createHall(String name) {
+        return new Hall(getLayoutByName(name), seatStoreFactory);
+    }
+
+    /**
+     * Sets the factory of the stores in which the halls created from now on keep their seat states.
+     *
+     * @param seatStoreFactory The factory, e.g. {@link utils.MappedSeatStore#factory(java.nio.file.Path)}.
+     * @return The current Halls instance for method chaining.
+     */
+    public Halls setSeatStoreFactory(SeatStore.Factory seatStoreFactory) {
+        this.seatStoreFactory = seatStoreFactory;
+        return this;
+    }
+
+    /**
+     * Adds a hall to the collection.
+     *
+     * @param name   The name of the hall.
+     * @param layout The HallLayout to be added.
      */
-    public void addHall(String name, Hall hall) {
-        hallMap.put(name, hall);
+    public void addHall(String name, HallLayout layout) {
+        hallMap.put(name, layout);
     }
 }
@@ -0,0 +1,136 @@
+package entities;
+
+import utils.ShardedWriter;
+
+import java.lang.ref.WeakReference;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The HoldReleaser class frees the seats of expired {@link SeatHold}s on the writers of their events.
+ * <p>
+ * The ticker of the {@link utils.TimingWheel} only queues an expired hold, which never blocks it.
+ * A daemon thread takes every hold queued so far, groups them by the shard of their event and passes
+ * one task per shard to the writer of the shard, which frees all of them between two commands. So
+ * expiring a million holds at once costs one hand-off per shard rather than one per hold.
+ * </p>
+ */
+final class HoldReleaser {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ConcurrentLinkedQueue<SeatHold> expired;
+    private volatile ShardedWriter writer;
+    private volatile Thread releaser;
+    private volatile boolean releaserParked;
+
+    /**
+     * Constructs a releaser that frees the seats on the given writer.
+     *
+     * @param writer The writer of the events of the holds.
+     */
+    HoldReleaser(ShardedWriter writer) {
+        this.expired = new ConcurrentLinkedQueue<>();
+        this.writer = writer;
+    }
+
+    /**
+     * Sets the writer the seats are freed on, as when the EventBooker is given a new one.
+     *
+     * @param writer The new ShardedWriter.
+     * @return The current HoldReleaser instance for method chaining.
+     */
+    HoldReleaser setWriter(ShardedWriter writer) {
+        this.writer = writer;
+        return this;
+    }
+
+    /**
+     * Queues an expired hold to have its seat freed. Never blocks.
+     *
+     * @param hold The hold.
+     */
+    void release(SeatHold hold) {
+        expired.add(hold);
+        Thread thread = releaser;
+        if (thread == null) {
+            startReleaser();
+        } else if (releaserParked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Frees the seats of every hold queued so far, with one task per shard, and waits for them.
+     * This is what the releaser thread does as holds expire.
+     *
+     * @return The number of holds taken from the queue.
+     */
+    int releaseQueued() {
+        Map<Event, List<SeatHold>> byEvent = new IdentityHashMap<>();
+        int count = 0;
+        SeatHold hold;
+        while ((hold = expired.poll()) != null) {
+            byEvent.computeIfAbsent(hold.getEvent(), event -> new ArrayList<>()).add(hold);
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        ShardedWriter writer = this.writer;
+        List<List<List<SeatHold>>> byShard = new ArrayList<>();
+        for (int shard = 0; shard < writer.getShardCount(); shard++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (Map.Entry<Event, List<SeatHold>> entry : byEvent.entrySet()) {
+            Event event = entry.getKey();
+            String key = ShardedWriter.routingKey(event.getDate().format(DATE_FORMAT), event.getName());
+            byShard.get(writer.shardOf(key)).add(entry.getValue());
+        }
+        for (int shard = 0; shard < byShard.size(); shard++) {
+            List<List<SeatHold>> holds = byShard.get(shard);
+            if (!holds.isEmpty()) {
+                writer.getShard(shard).run(() -> holds.forEach(list -> list.forEach(SeatHold::free)));
+            }
+        }
+        return count;
+    }
+
+    private synchronized void startReleaser() {
+        if (releaser != null) {
+            return;
+        }
+        // the thread holds its owner weakly, so an EventBooker that is no longer used
+        // can be collected, after which the thread ends
+        WeakReference<HoldReleaser> owner = new WeakReference<>(this);
+        ConcurrentLinkedQueue<SeatHold> queue = expired;
+        Thread thread = new Thread(() -> {
+            while (true) {
+                HoldReleaser policy = owner.get();
+                if (policy == null) {
+                    return;
+                }
+                policy.releaserParked = false;
+                try {
+                    policy.releaseQueued();
+                } catch (RuntimeException e) {
+                    // a failing release must not stop the others
+                }
+                // announced before the queue is checked, so a hold queued after the check unparks it
+                policy.releaserParked = true;
+                if (queue.isEmpty()) {
+                    policy = null;
+                    LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                }
+            }
+        }, "hold-releaser");
+        thread.setDaemon(true);
+        releaser = thread;
+        thread.start();
+    }
+}
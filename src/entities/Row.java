@@ -1,65 +1,61 @@
 package entities;
 
-import exceptions.ThereIsNoSuchSeat;
-
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * The Row class represents a row of seats in a hall.
- * It manages the seats within the row and provides methods to add, remove, and initialize seats.
+ * It is a view over the hall's seat states and creates its {@link Seat} views on demand.
  */
 public class Row {
-    private final int NUMBER_OF_SEATS;
-    private List<Seat> seats;
+    private final Hall hall;
+    private final int index;
 
     /**
-     * Constructs a Row with a specified number of seats.
+     * Constructs a Row view for the given row of a hall.
      *
-     * @param NUMBER_OF_SEATS The total number of seats in this row.
+     * @param hall  The hall the row belongs to.
+     * @param index The zero-based index of the row.
      */
-    public Row(int NUMBER_OF_SEATS) {
-        this.NUMBER_OF_SEATS = NUMBER_OF_SEATS;
-        this.seats = new ArrayList<>();
+    public Row(Hall hall, int index) {
+        this.hall = hall;
+        this.index = index;
     }
 
     /**
-     * Adds a seat to the row.
+     * Returns the total number of seats in the row.
      *
-     * @param seat The Seat object to be added.
+     * @return The number of seats.
      */
-    public void addSeat(Seat seat) {
-        this.seats.add(seat);
+    public int getNUMBER_OF_SEATS() {
+        return hall.getNUMBER_OF_SEATS();
     }
 
     /**
-     * Removes a seat from the row.
+     * Returns the number of booked seats in the row.
      *
-     * @param seat The Seat object to be removed.
+     * @return The number of booked seats.
      */
-    public void removeSeat(Seat seat) {
-        this.seats.remove(seat);
+    public int getBookedCount() {
+        return hall.getSeatStates().countBookedInRow(index);
     }
 
     /**
-     * Initializes the seats in the row by assigning seat numbers based on the row number.
+     * Returns the number of payed seats in the row.
      *
-     * @param number The row number used to generate seat numbers.
+     * @return The number of payed seats.
      */
-    public void initializeSeats(int number) {
-        char start = 'A';
-        for (int i = 0; i < NUMBER_OF_SEATS; i++) {
-            seats.add(new Seat(String.valueOf(number + String.valueOf(start++)), false, false, ""));
-        }
+    public int getPayedCount() {
+        return hall.getSeatStates().countPayedInRow(index);
     }
 
     /**
-     * Returns the total number of seats in the row.
+     * Returns the number of seats in the row that are neither booked nor payed.
      *
-     * @return The number of seats.
+     * @return The number of free seats.
      */
-    public int getNUMBER_OF_SEATS() {
-        return NUMBER_OF_SEATS;
+    public int getFreeCount() {
+        return hall.getSeatStates().countFreeInRow(index);
     }
 
     /**
@@ -70,31 +66,31 @@ public class Row {
      * @throws RuntimeException If no seat with the given number is found.
      */
     public Seat getSeatByNumber(String number) {
-        for (Seat seat : seats) {
-            if (seat.getNumber().equals(number)) {
-                return seat;
-            }
-        }
-        throw new ThereIsNoSuchSeat("There is no such seat");
+        int seatIndex = hall.getLayout().getSeatIndex(index + 1, number);
+        return new Seat(hall.getSeatStates(), seatIndex, number);
     }
 
     /**
-     * Returns the list of seats in the row.
+     * Returns a view of the seat in the given column.
      *
-     * @return A list of Seat objects.
+     * @param column The zero-based column index.
+     * @return The Seat view.
      */
-    public List<Seat> getSeats() {
-        return seats;
+    public Seat getSeat(int column) {
+        SeatStates states = hall.getSeatStates();
+        return new Seat(states, states.index(index, column), hall.getSeatLabel(index, column));
     }
 
     /**
-     * Sets the list of seats in the row.
+     * Returns the list of seats in the row. The seat views are created on each call.
      *
-     * @param seats The new list of seats.
-     * @return The current Row instance for method chaining.
+     * @return A list of Seat objects.
      */
-    public Row setSeats(List<Seat> seats) {
-        this.seats = seats;
-        return this;
+    public List<Seat> getSeats() {
+        List<Seat> seats = new ArrayList<>(hall.getNUMBER_OF_SEATS());
+        for (int column = 0; column < hall.getNUMBER_OF_SEATS(); column++) {
+            seats.add(getSeat(column));
+        }
+        return seats;
     }
 }
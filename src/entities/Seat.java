@@ -2,27 +2,25 @@ package entities;
 
 /**
  * The Seat class represents a seat in a row within a hall.
- * It stores information about the seat, such as whether it is booked, payed for, and any associated notes.
+ * It is a lightweight view over the hall's {@link SeatStates}; whether the seat is booked,
+ * payed for, and any associated notes are read from and written to the hall directly.
  */
 public class Seat {
-    private String number;
-    private boolean booked;
-    private boolean payed;
-    private String note;
+    private final SeatStates states;
+    private final int index;
+    private final String number;
 
     /**
-     * Constructs a Seat with the specified details.
+     * Constructs a Seat view over the given seat states.
      *
+     * @param states The seat states of the hall the seat belongs to.
+     * @param index The index of the seat within the seat states.
      * @param number The seat number.
-     * @param booked A flag indicating whether the seat is booked.
-     * @param payed A flag indicating whether the seat is payed for.
-     * @param note Any additional notes associated with the seat.
      */
-    public Seat(String number, boolean booked, boolean payed, String note) {
+    public Seat(SeatStates states, int index, String number) {
+        this.states = states;
+        this.index = index;
         this.number = number;
-        this.booked = booked;
-        this.payed = payed;
-        this.note = note;
     }
 
     /**
@@ -35,14 +33,12 @@ public class Seat {
     }
 
     /**
-     * Sets the seat number.
+     * Returns the index of the seat within the hall's seat states.
      *
-     * @param number The new seat number.
-     * @return The current Seat instance for method chaining.
+     * @return The seat index.
      */
-    public Seat setNumber(String number) {
-        this.number = number;
-        return this;
+    public int getIndex() {
+        return index;
     }
 
     /**
@@ -51,7 +47,7 @@ public class Seat {
      * @return True if the seat is booked, false otherwise.
      */
     public boolean isBooked() {
-        return booked;
+        return states.isBooked(index);
     }
 
     /**
@@ -61,7 +57,7 @@ public class Seat {
      * @return The current Seat instance for method chaining.
      */
     public Seat setBooked(boolean booked) {
-        this.booked = booked;
+        states.setBooked(index, booked);
         return this;
     }
 
@@ -71,7 +67,7 @@ public class Seat {
      * @return True if the seat is payed for, false otherwise.
      */
     public boolean isPayed() {
-        return payed;
+        return states.isPayed(index);
     }
 
     /**
@@ -81,7 +77,7 @@ public class Seat {
      * @return The current Seat instance for method chaining.
      */
     public Seat setPayed(boolean payed) {
-        this.payed = payed;
+        states.setPayed(index, payed);
         return this;
     }
 
@@ -91,7 +87,7 @@ public class Seat {
      * @return The note associated with the seat.
      */
     public String getNote() {
-        return note;
+        return states.getNote(index);
     }
 
     /**
@@ -101,7 +97,7 @@ public class Seat {
      * @return The current Seat instance for method chaining.
      */
     public Seat setNote(String note) {
-        this.note = note;
+        states.setNote(index, note);
         return this;
     }
 }
@@ -0,0 +1,121 @@
+package entities;
+
+import utils.TimingWheel;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * The SeatHold class represents a seat that is temporarily held for a customer, e.g. while it sits in
+ * their cart. The seat is in the {@link SeatStates#HELD} state for as long as the hold is active.
+ * <p>
+ * A hold ends exactly once: it is either converted into a purchase or it expires when its timeout
+ * fires on the {@link TimingWheel}. Both paths first claim the hold with a compare-and-set on its
+ * status, so a purchase and an expiry racing for the same hold cannot both succeed. The expiry is not
+ * run on the ticker of the wheel: the hold is queued with a {@link HoldReleaser}, which frees the seat
+ * on the writer of the event's shard, like the commands that change the seats of the event.
+ * </p>
+ */
+public class SeatHold extends TimingWheel.Timeout {
+    private static final int ACTIVE = 0;
+    private static final int ENDED = 1;
+    private static final AtomicIntegerFieldUpdater<SeatHold> STATUS =
+            AtomicIntegerFieldUpdater.newUpdater(SeatHold.class, "status");
+
+    private final long id;
+    private final Event event;
+    private final int seatIndex;
+    private final Map<Long, SeatHold> registry;
+    private final HoldReleaser releaser;
+    private volatile int status;
+
+    /**
+     * Constructs an active SeatHold. The seat must already be held.
+     *
+     * @param id        The id of the hold.
+     * @param event     The event the seat belongs to.
+     * @param seatIndex The index of the held seat.
+     * @param registry  The map the hold is registered in by id; the hold removes itself when it ends.
+     * @param releaser  The releaser that frees the seat once the hold expires.
+     */
+    SeatHold(long id, Event event, int seatIndex, Map<Long, SeatHold> registry, HoldReleaser releaser) {
+        this.id = id;
+        this.event = event;
+        this.seatIndex = seatIndex;
+        this.registry = registry;
+        this.releaser = releaser;
+    }
+
+    /**
+     * Returns the id of the hold.
+     *
+     * @return The hold id.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the event the held seat belongs to.
+     *
+     * @return The event.
+     */
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Returns the index of the held seat.
+     *
+     * @return The seat index.
+     */
+    public int getSeatIndex() {
+        return seatIndex;
+    }
+
+    /**
+     * Checks if the hold has neither been converted nor expired yet.
+     *
+     * @return True if the hold is active, false otherwise.
+     */
+    public boolean isActive() {
+        return status == ACTIVE;
+    }
+
+    /**
+     * Turns the held seat into one paid without a booking, if the hold is still active.
+     *
+     * @return True if the seat was paid by this call, false if the hold had already ended.
+     */
+    boolean convert() {
+        if (!end()) {
+            return false;
+        }
+        return event.getHall().getSeatStates().payHeld(seatIndex);
+    }
+
+    /**
+     * Queues the hold to have its seat freed on the writer of its event. Never blocks the ticker.
+     */
+    @Override
+    protected void expire() {
+        releaser.release(this);
+    }
+
+    /**
+     * Frees the held seat, if the hold is still active. Runs on the writer of the event.
+     */
+    void free() {
+        if (end()) {
+            event.getHall().getSeatStates().compareAndSetState(seatIndex, SeatStates.HELD, SeatStates.FREE);
+        }
+    }
+
+    private boolean end() {
+        if (!STATUS.compareAndSet(this, ACTIVE, ENDED)) {
+            return false;
+        }
+        registry.remove(id, this);
+        return true;
+    }
+}
@@ -0,0 +1,928 @@
+package entities;
+
+import utils.HeapSeatStore;
+import utils.SeatStore;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The SeatStates class is the compact seat-state engine behind a {@link Hall}.
+ * Every seat has one of four states, packed two bits per seat into words indexed by (row, column):
+ * {@link #FREE}, {@link #HELD}, {@link #BOOKED} or {@link #PAID}.
+ * Notes are kept in a sparse map that only holds seats with a note.
+ * Booked, payed and free seats are also counted per row and per hall, so occupancy questions
+ * never need a walk over the seats. A booked seat is one that is booked, or paid after being booked;
+ * a free seat is one that is neither booked, paid nor held.
+ * <p>
+ * A seat can also be paid for without a booking. It is then {@link #PAID} and marked as such in a
+ * second set of words, laid out like the state words, so it counts as paid but not as booked, is left
+ * out of the bookings and can still be booked. The mark is only changed while the seat is
+ * {@link #HELD} by whoever changes it, so it is stable for as long as the seat is paid.
+ * </p>
+ * <p>
+ * The states are safe for concurrent use without locks. Every change of state is a single
+ * compare-and-set on the word that holds the seat, so {@link #book(int, String)}, {@link #unbook(int)}
+ * and {@link #pay(int)} either win or fail atomically, and only the winner updates the counters.
+ * Threads booking different seats never wait for each other, even within one hall.
+ * </p>
+ * <p>
+ * For best-available searches each row also caches the length of its longest run of free seats.
+ * A transition to or from free invalidates the cache of its row, and the next search rescans only
+ * the rows that changed, so a search touches one summary per row instead of every seat.
+ * </p>
+ * <p>
+ * Every change, including a change of note and a whole group booking, is bracketed by two write
+ * counters, like a sequence lock. {@link Hall#snapshot()} reads the counters before and after
+ * copying the words and retries if a change started in between, so a snapshot is a consistent
+ * point in time while writers never wait for readers.
+ * </p>
+ * <p>
+ * The state words and the counters live in a {@link SeatStore}: on the heap by default, or in a
+ * memory-mapped file when the halls are given another store. The notes and the free run cache
+ * always stay on the heap.
+ * </p>
+ */
+public class SeatStates {
+    /** The state of a seat that is available. */
+    public static final int FREE = 0;
+    /** The state of a seat that is temporarily held. */
+    public static final int HELD = 1;
+    /** The state of a seat that is booked but not paid for. */
+    public static final int BOOKED = 2;
+    /** The state of a seat that is paid for. */
+    public static final int PAID = 3;
+
+    private static final int SEATS_PER_WORD = 32;
+    private static final long STATE_MASK = 0b11L;
+    private static final long BOOKED_BITS = 0xAAAAAAAAAAAAAAAAL;
+    private static final long LOW_BITS = 0x5555555555555555L;
+
+    private final int numberOfRows;
+    private final int numberOfSeats;
+    private final int stateWords;
+    // the state words, then as many words marking the seats paid without a booking, at the high bit of
+    // their pair; then counters: booked, payed and free seats per row, then the same for the hall
+    private final SeatStore states;
+    private final Map<Integer, String> notes;
+    private final int payedCounters;
+    private final int freeCounters;
+    private final int hallCounters;
+    // per row: invalidation count in the high half, longest free run + 1 in the low half (0 = unknown)
+    private final AtomicLongArray runSummaries;
+    // bumped before and after every change; equal when no change is in progress
+    private final AtomicLong writesStarted;
+    private final AtomicLong writesFinished;
+
+    /**
+     * Constructs the seat states for a hall with the given geometry.
+     * All seats start free and without a note. The states are kept on the heap.
+     *
+     * @param numberOfRows  The number of rows in the hall.
+     * @param numberOfSeats The number of seats in each row.
+     */
+    public SeatStates(int numberOfRows, int numberOfSeats) {
+        this(numberOfRows, numberOfSeats, HeapSeatStore.FACTORY);
+    }
+
+    /**
+     * Constructs the seat states for a hall with the given geometry, kept in a store of the given factory.
+     * All seats start free and without a note.
+     *
+     * @param numberOfRows  The number of rows in the hall.
+     * @param numberOfSeats The number of seats in each row.
+     * @param storeFactory  The factory of the store of the state words and counters.
+     */
+    public SeatStates(int numberOfRows, int numberOfSeats, SeatStore.Factory storeFactory) {
+        this(numberOfRows, numberOfSeats, storeFactory.create(2 * stateWords(numberOfRows, numberOfSeats),
+                3 * numberOfRows + 3));
+    }
+
+    private SeatStates(int numberOfRows, int numberOfSeats, SeatStore states) {
+        this.numberOfRows = numberOfRows;
+        this.numberOfSeats = numberOfSeats;
+        this.payedCounters = numberOfRows;
+        this.freeCounters = 2 * numberOfRows;
+        this.hallCounters = 3 * numberOfRows;
+        this.stateWords = stateWords(numberOfRows, numberOfSeats);
+        this.states = states;
+        this.notes = new ConcurrentHashMap<>();
+        for (int row = 0; row < numberOfRows; row++) {
+            states.addToCounter(freeCounters + row, numberOfSeats);
+        }
+        states.addToCounter(hallCounters + 2, numberOfRows * numberOfSeats);
+        this.runSummaries = new AtomicLongArray(numberOfRows);
+        this.writesStarted = new AtomicLong();
+        this.writesFinished = new AtomicLong();
+    }
+
+    /**
+     * Takes over the seat states of an event that a store of the given factory kept from before a
+     * restart, if they are exactly those copied by the checkpoint at the given journal position.
+     * Held seats are freed and the seats recounted, as by {@link #restore(long[])}.
+     *
+     * @param numberOfRows  The number of rows in the hall.
+     * @param numberOfSeats The number of seats in each row.
+     * @param storeFactory  The factory that kept the store.
+     * @param eventId       The id of the event.
+     * @param position      The position of the event in the checkpoint.
+     * @return The seat states, or null if the factory kept no such store.
+     */
+    static SeatStates recover(int numberOfRows, int numberOfSeats, SeatStore.Factory storeFactory,
+                              long eventId, long position) {
+        int hallCounters = 3 * numberOfRows;
+        SeatStore store = storeFactory.recover(eventId, position, 2 * stateWords(numberOfRows, numberOfSeats), hallCounters + 3);
+        if (store == null) {
+            return null;
+        }
+        long[] words = new long[store.wordCount()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = store.getWord(i);
+        }
+        for (int counter = 0; counter < hallCounters + 3; counter++) {
+            store.addToCounter(counter, -store.getCounter(counter));
+        }
+        SeatStates states = new SeatStates(numberOfRows, numberOfSeats, store);
+        states.restore(words);
+        return states;
+    }
+
+    /**
+     * Returns the flat index of a seat.
+     *
+     * @param row    The zero-based row index.
+     * @param column The zero-based column index.
+     * @return The index of the seat.
+     */
+    public int index(int row, int column) {
+        return row * numberOfSeats + column;
+    }
+
+    /**
+     * Returns the number of rows covered by these states.
+     *
+     * @return The number of rows.
+     */
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * Returns the number of seats in each row.
+     *
+     * @return The number of seats per row.
+     */
+    public int getNumberOfSeats() {
+        return numberOfSeats;
+    }
+
+    /**
+     * Returns the state of the seat at the given index.
+     *
+     * @param index The seat index.
+     * @return One of {@link #FREE}, {@link #HELD}, {@link #BOOKED} or {@link #PAID}.
+     */
+    public int getState(int index) {
+        return (int) ((states.getWord(index / SEATS_PER_WORD) >>> shift(index)) & STATE_MASK);
+    }
+
+    /**
+     * Atomically changes the state of a seat if it currently has the expected state,
+     * and updates the counters when it succeeds.
+     *
+     * @param index  The seat index.
+     * @param expect The expected current state.
+     * @param update The new state.
+     * @return True if the state was changed by this call, false if the seat was not in the expected state.
+     */
+    public boolean compareAndSetState(int index, int expect, int update) {
+        int word = index / SEATS_PER_WORD;
+        int shift = shift(index);
+        long mask = STATE_MASK << shift;
+        long expectBits = (long) expect << shift;
+        long updateBits = (long) update << shift;
+        while (true) {
+            long current = states.getWord(word);
+            if ((current & mask) != expectBits) {
+                return false;
+            }
+            // the mark is only read while the caller holds the seat, the one time nobody else can change it
+            boolean marked = expect == HELD && isMarked(index);
+            beginWrite();
+            try {
+                // a failed CAS here means a neighbour in the same word changed, so retry
+                if (states.compareAndSetWord(word, current, (current & ~mask) | updateBits)) {
+                    if (update == HELD) {
+                        marked = isMarked(index);
+                    }
+                    if (expect != update) {
+                        count(index, expect, -1, marked);
+                        count(index, update, 1, marked);
+                        if (expect == FREE || update == FREE) {
+                            invalidateRuns(index / numberOfSeats);
+                        }
+                    }
+                    return true;
+                }
+            } finally {
+                endWrite();
+            }
+        }
+    }
+
+    /**
+     * Checks if the seat at the given index is booked, i.e. booked, or paid after being booked.
+     *
+     * @param index The seat index.
+     * @return True if the seat is booked, false otherwise.
+     */
+    public boolean isBooked(int index) {
+        int state = getState(index);
+        return state == BOOKED || state == PAID && !isMarked(index);
+    }
+
+    /**
+     * Checks if the seat at the given index was paid for without being booked.
+     *
+     * @param index The seat index.
+     * @return True if the seat is paid for and not booked, false otherwise.
+     */
+    public boolean isPaidWithoutBooking(int index) {
+        return getState(index) == PAID && isMarked(index);
+    }
+
+    /**
+     * Sets the booked flag of the seat at the given index.
+     * Booking only succeeds on a free seat or one paid without a booking, and unbooking only on a
+     * booked, unpaid seat.
+     *
+     * @param index  The seat index.
+     * @param value  The new booked flag.
+     */
+    public void setBooked(int index, boolean value) {
+        if (value) {
+            if (!compareAndSetState(index, FREE, BOOKED)) {
+                bookPaid(index);
+            }
+        } else {
+            unbook(index);
+        }
+    }
+
+    /**
+     * Checks if the seat at the given index is payed for.
+     *
+     * @param index The seat index.
+     * @return True if the seat is payed for, false otherwise.
+     */
+    public boolean isPayed(int index) {
+        return getState(index) == PAID;
+    }
+
+    /**
+     * Sets the payed flag of the seat at the given index.
+     * Clearing the flag turns a paid seat back into a booked one, or into a free one if it was paid
+     * without a booking.
+     *
+     * @param index The seat index.
+     * @param value The new payed flag.
+     */
+    public void setPayed(int index, boolean value) {
+        if (value) {
+            pay(index);
+            return;
+        }
+        beginWrite();
+        try {
+            if (compareAndSetState(index, PAID, HELD)) {
+                boolean marked = isMarked(index);
+                mark(index, false);
+                compareAndSetState(index, HELD, marked ? FREE : BOOKED);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Checks if the seat at the given index is free, i.e. neither booked, paid nor held.
+     *
+     * @param index The seat index.
+     * @return True if the seat is free, false otherwise.
+     */
+    public boolean isFree(int index) {
+        return getState(index) == FREE;
+    }
+
+    /**
+     * Books the seat at the given index and sets its note, if the seat is free or was paid for without
+     * a booking; the latter stays paid.
+     *
+     * @param index The seat index.
+     * @param note  The note of the booking.
+     * @return True if the seat was booked by this call, false otherwise.
+     */
+    public boolean book(int index, String note) {
+        beginWrite();
+        try {
+            if (!compareAndSetState(index, FREE, BOOKED) && !bookPaid(index)) {
+                return false;
+            }
+            setNote(index, note);
+            return true;
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Releases the booking of the seat at the given index, if it is booked and not paid for.
+     *
+     * @param index The seat index.
+     * @return True if the booking was released by this call, false otherwise.
+     */
+    public boolean unbook(int index) {
+        return compareAndSetState(index, BOOKED, FREE);
+    }
+
+    /**
+     * Marks the seat at the given index as paid for, if it is free or booked. A free seat is paid for
+     * without a booking. A held seat can only be paid for by whoever holds it.
+     *
+     * @param index The seat index.
+     * @return True if the seat was paid by this call, false if it was already paid for or is held.
+     */
+    public boolean pay(int index) {
+        while (true) {
+            int state = getState(index);
+            if (state == PAID || state == HELD) {
+                return false;
+            }
+            if (state == BOOKED) {
+                if (compareAndSetState(index, BOOKED, PAID)) {
+                    return true;
+                }
+                continue;
+            }
+            beginWrite();
+            try {
+                if (compareAndSetState(index, FREE, HELD)) {
+                    return payHeld(index);
+                }
+            } finally {
+                endWrite();
+            }
+        }
+    }
+
+    /**
+     * Pays for a seat held by the caller, without a booking.
+     *
+     * @param index The seat index.
+     * @return True if the seat was paid by this call, false if it was not held.
+     */
+    public boolean payHeld(int index) {
+        beginWrite();
+        try {
+            // marked before it is paid, so it never counts as booked
+            mark(index, true);
+            if (compareAndSetState(index, HELD, PAID)) {
+                return true;
+            }
+            mark(index, false);
+            return false;
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Books all the given seats and sets their note, or none of them.
+     * The seats are taken in ascending index order, each one moving from free to held, and only
+     * turned into bookings once all of them are held; on the first seat that is not free the seats
+     * taken so far are released again. Holding the seats first means no other thread can unbook or
+     * buy a seat of the group while it is being rolled back.
+     *
+     * @param indexes The seat indexes, in any order and without duplicates.
+     * @param note    The note of every booking.
+     * @return -1 if all the seats were booked, otherwise the index of the first seat that was not free.
+     */
+    public int bookAll(int[] indexes, String note) {
+        int[] sorted = indexes.clone();
+        Arrays.sort(sorted);
+        int[] previous = new int[sorted.length];
+        beginWrite();
+        try {
+            int conflict = holdAll(sorted, false, previous);
+            if (conflict >= 0) {
+                return conflict;
+            }
+            for (int index : sorted) {
+                setNote(index, note);
+                compareAndSetState(index, HELD, BOOKED);
+            }
+            return -1;
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Pays for all the given seats, or none of them. Each seat must be free or booked.
+     * The seats are taken the same way as in {@link #bookAll(int[], String)}, and seats that were
+     * booked before a rollback are booked again afterwards.
+     *
+     * @param indexes The seat indexes, in any order and without duplicates.
+     * @return -1 if all the seats were paid for, otherwise the index of the first seat that could not be paid for.
+     */
+    public int payAll(int[] indexes) {
+        int[] sorted = indexes.clone();
+        Arrays.sort(sorted);
+        int[] previous = new int[sorted.length];
+        beginWrite();
+        try {
+            int conflict = holdAll(sorted, true, previous);
+            if (conflict >= 0) {
+                return conflict;
+            }
+            for (int i = 0; i < sorted.length; i++) {
+                if (previous[i] == FREE) {
+                    payHeld(sorted[i]);
+                } else {
+                    compareAndSetState(sorted[i], HELD, PAID);
+                }
+            }
+            return -1;
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Returns the length of the longest run of adjacent free seats in a row.
+     *
+     * @param row The zero-based row index.
+     * @return The length of the longest free run.
+     */
+    public int maxFreeRunInRow(int row) {
+        long summary = runSummaries.get(row);
+        int cached = (int) summary;
+        if (cached != 0) {
+            return cached - 1;
+        }
+        int run = 0;
+        int longest = 0;
+        for (int index = index(row, 0), end = index + numberOfSeats; index < end; index++) {
+            run = isFree(index) ? run + 1 : 0;
+            longest = Math.max(longest, run);
+        }
+        // only cache the result if no seat of the row changed while it was being computed
+        runSummaries.compareAndSet(row, summary, summary | (longest + 1));
+        return longest;
+    }
+
+    /**
+     * Finds the best block of adjacent free seats on one row. Blocks closer to the centre of the hall
+     * are better, measuring the distance between the middle of the block and the middle of the hall
+     * in rows plus seats.
+     *
+     * @param count The number of seats in the block.
+     * @return The index of the first seat of the block, or -1 if no row has enough adjacent free seats.
+     */
+    public int findBestBlock(int count) {
+        if (count <= 0 || count > numberOfSeats) {
+            return -1;
+        }
+        // distances are doubled so that the middle of an even hall or block stays an integer
+        int bestScore = Integer.MAX_VALUE;
+        int bestIndex = -1;
+        int below = (numberOfRows - 1) / 2;
+        int above = below + 1;
+        while (below >= 0 || above < numberOfRows) {
+            int row;
+            if (above >= numberOfRows || below >= 0 && numberOfRows - 1 - 2 * below <= 2 * above - numberOfRows + 1) {
+                row = below--;
+            } else {
+                row = above++;
+            }
+            int rowDistance = Math.abs(2 * row - numberOfRows + 1);
+            if (rowDistance >= bestScore) {
+                break;
+            }
+            if (maxFreeRunInRow(row) < count) {
+                continue;
+            }
+            int column = bestBlockInRow(row, count);
+            if (column >= 0) {
+                int score = rowDistance + Math.abs(2 * column + count - numberOfSeats);
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestIndex = index(row, column);
+                }
+            }
+        }
+        return bestIndex;
+    }
+
+    /**
+     * Books the best block of adjacent free seats, as found by {@link #findBestBlock(int)}, atomically.
+     * If another booking takes one of the seats first, the search is repeated.
+     *
+     * @param count The number of seats in the block.
+     * @param note  The note of every booking.
+     * @return The index of the first booked seat, or -1 if no row has enough adjacent free seats.
+     */
+    public int bookBestBlock(int count, String note) {
+        while (true) {
+            int start = findBestBlock(count);
+            if (start < 0) {
+                return -1;
+            }
+            int[] block = new int[count];
+            for (int i = 0; i < count; i++) {
+                block[i] = start + i;
+            }
+            if (bookAll(block, note) < 0) {
+                return start;
+            }
+        }
+    }
+
+    /**
+     * Returns the note of the seat at the given index.
+     *
+     * @param index The seat index.
+     * @return The note, or an empty string if the seat has none.
+     */
+    public String getNote(int index) {
+        return notes.getOrDefault(index, "");
+    }
+
+    /**
+     * Sets the note of the seat at the given index. An empty note removes the entry.
+     *
+     * @param index The seat index.
+     * @param note  The new note.
+     */
+    public void setNote(int index, String note) {
+        beginWrite();
+        try {
+            if (note == null || note.isEmpty()) {
+                notes.remove(index);
+            } else {
+                notes.put(index, note);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Counts the booked seats in a row.
+     *
+     * @param row The zero-based row index.
+     * @return The number of booked seats in the row.
+     */
+    public int countBookedInRow(int row) {
+        return states.getCounter(row);
+    }
+
+    /**
+     * Counts the payed seats in a row.
+     *
+     * @param row The zero-based row index.
+     * @return The number of payed seats in the row.
+     */
+    public int countPayedInRow(int row) {
+        return states.getCounter(payedCounters + row);
+    }
+
+    /**
+     * Counts the free seats in a row.
+     *
+     * @param row The zero-based row index.
+     * @return The number of free seats in the row.
+     */
+    public int countFreeInRow(int row) {
+        return states.getCounter(freeCounters + row);
+    }
+
+    /**
+     * Returns the number of booked seats in the hall.
+     *
+     * @return The number of booked seats.
+     */
+    public int getBookedCount() {
+        return states.getCounter(hallCounters);
+    }
+
+    /**
+     * Returns the number of payed seats in the hall.
+     *
+     * @return The number of payed seats.
+     */
+    public int getPayedCount() {
+        return states.getCounter(hallCounters + 1);
+    }
+
+    /**
+     * Returns the number of free seats in the hall.
+     *
+     * @return The number of free seats.
+     */
+    public int getFreeCount() {
+        return states.getCounter(hallCounters + 2);
+    }
+
+    /**
+     * Returns the index of the first booked seat at or after the given index.
+     *
+     * @param fromIndex The index to start searching from.
+     * @return The index of the next booked seat, or -1 if there is none.
+     */
+    public int nextBooked(int fromIndex) {
+        int size = numberOfRows * numberOfSeats;
+        if (fromIndex >= size) {
+            return -1;
+        }
+        int word = fromIndex / SEATS_PER_WORD;
+        // the high bit of a seat's pair is set exactly for BOOKED and PAID, and its mark for PAID without a booking
+        long bits = states.getWord(word) & ~states.getWord(stateWords + word) & BOOKED_BITS & (-1L << shift(fromIndex));
+        while (true) {
+            if (bits != 0) {
+                int index = word * SEATS_PER_WORD + Long.numberOfTrailingZeros(bits) / 2;
+                return index < size ? index : -1;
+            }
+            if (++word == stateWords) {
+                return -1;
+            }
+            bits = states.getWord(word) & ~states.getWord(stateWords + word) & BOOKED_BITS;
+        }
+    }
+
+    /**
+     * Marks the start of a change that snapshots must not see half done. Must be paired with {@link #endWrite()}.
+     */
+    void beginWrite() {
+        writesStarted.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of a change started with {@link #beginWrite()}.
+     */
+    void endWrite() {
+        writesFinished.incrementAndGet();
+    }
+
+    /**
+     * Returns the version to validate a snapshot against: the number of finished changes,
+     * or -1 if a change is in progress.
+     *
+     * @return The version, or -1.
+     */
+    long readVersion() {
+        long finished = writesFinished.get();
+        return writesStarted.get() == finished ? finished : -1;
+    }
+
+    /**
+     * Checks that no change started since {@link #readVersion()} returned the given version.
+     *
+     * @param version The version.
+     * @return True if whatever was read in between is consistent.
+     */
+    boolean validate(long version) {
+        return writesStarted.get() == version;
+    }
+
+    /**
+     * Copies the state words followed by the words that mark the seats paid without a booking; only
+     * consistent if validated afterwards.
+     *
+     * @return A copy of the words, 32 seats per word.
+     */
+    long[] copyWords() {
+        long[] words = new long[states.wordCount()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = states.getWord(i);
+        }
+        return words;
+    }
+
+    /**
+     * Records in the store that its contents are those copied by a checkpoint at the given journal
+     * position. Must be called on the writer of the event, right after the copy.
+     *
+     * @param eventId  The id of the event.
+     * @param position The position of the event in the checkpoint.
+     */
+    void checkpointed(long eventId, long position) {
+        states.checkpointed(eventId, position);
+    }
+
+    /**
+     * Writes the store of these states to storage, if it has any.
+     */
+    void force() {
+        states.force();
+    }
+
+    /**
+     * Replaces the states of all seats with saved state words and recounts the seats.
+     * Held seats are restored as free, since their holds do not outlive the process.
+     * Must only be called on new states, before they are shared.
+     *
+     * @param words The saved state words, 32 seats per word, as returned by {@link #copyWords()}; the
+     *              words that mark the seats paid without a booking may be left out, as in older files.
+     * @throws IllegalArgumentException If the words do not cover exactly the seats of these states.
+     */
+    void restore(long[] words) {
+        int size = numberOfRows * numberOfSeats;
+        if (words.length != stateWords && words.length != 2 * stateWords) {
+            throw new IllegalArgumentException("The seat states do not match the hall");
+        }
+        // counted per row first, with one bit count per word that lies within a row
+        int[] booked = new int[numberOfRows];
+        int[] payed = new int[numberOfRows];
+        int[] taken = new int[numberOfRows];
+        for (int word = 0; word < stateWords; word++) {
+            long bits = words[word];
+            long held = bits & LOW_BITS & ~((bits & BOOKED_BITS) >>> 1);
+            bits &= ~(held | held << 1);
+            int first = word * SEATS_PER_WORD;
+            int seatsInWord = Math.min(SEATS_PER_WORD, size - first);
+            if (seatsInWord < SEATS_PER_WORD) {
+                bits &= (1L << (seatsInWord * 2)) - 1;
+            }
+            // only paid seats keep their mark
+            long marks = words.length == stateWords ? 0 : words[stateWords + word] & bits & (bits << 1) & BOOKED_BITS;
+            states.setWord(word, bits);
+            states.setWord(stateWords + word, marks);
+            int row = first / numberOfSeats;
+            if (row == (first + seatsInWord - 1) / numberOfSeats) {
+                long high = bits & BOOKED_BITS;
+                booked[row] += Long.bitCount(high & ~marks);
+                payed[row] += Long.bitCount(high & (bits << 1));
+                // every booked or paid seat, marked or not, is taken
+                taken[row] += Long.bitCount(high);
+                continue;
+            }
+            while (bits != 0) {
+                int pair = Long.numberOfTrailingZeros(bits) / 2;
+                int state = (int) ((bits >>> (pair * 2)) & STATE_MASK);
+                row = (first + pair) / numberOfSeats;
+                booked[row] += (marks & (2L << (pair * 2))) == 0 ? 1 : 0;
+                payed[row] += state == PAID ? 1 : 0;
+                taken[row]++;
+                bits &= ~(STATE_MASK << (pair * 2));
+            }
+        }
+        int bookedTotal = 0;
+        int payedTotal = 0;
+        int takenTotal = 0;
+        for (int row = 0; row < numberOfRows; row++) {
+            states.addToCounter(row, booked[row]);
+            states.addToCounter(payedCounters + row, payed[row]);
+            states.addToCounter(freeCounters + row, -taken[row]);
+            bookedTotal += booked[row];
+            payedTotal += payed[row];
+            takenTotal += taken[row];
+        }
+        states.addToCounter(hallCounters, bookedTotal);
+        states.addToCounter(hallCounters + 1, payedTotal);
+        states.addToCounter(hallCounters + 2, -takenTotal);
+    }
+
+    private int holdAll(int[] sorted, boolean includeBooked, int[] previous) {
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i - 1] == sorted[i]) {
+                throw new IllegalArgumentException("A seat is listed more than once");
+            }
+        }
+        for (int taken = 0; taken < sorted.length; taken++) {
+            int index = sorted[taken];
+            int state = hold(index, includeBooked);
+            if (state < 0) {
+                for (int i = 0; i < taken; i++) {
+                    compareAndSetState(sorted[i], HELD, previous[i]);
+                }
+                return index;
+            }
+            previous[taken] = state;
+        }
+        return -1;
+    }
+
+    private int hold(int index, boolean includeBooked) {
+        while (true) {
+            int state = getState(index);
+            if (state != FREE && !(includeBooked && state == BOOKED)) {
+                return -1;
+            }
+            if (compareAndSetState(index, state, HELD)) {
+                return state;
+            }
+        }
+    }
+
+    private int bestBlockInRow(int row, int count) {
+        int ideal = (numberOfSeats - count) / 2;
+        int bestColumn = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        int runStart = 0;
+        for (int column = 0; column <= numberOfSeats; column++) {
+            if (column < numberOfSeats && isFree(index(row, column))) {
+                continue;
+            }
+            // a free run [runStart, column) ends here; place the block as near the ideal start as it allows
+            if (column - runStart >= count) {
+                int start = Math.max(runStart, Math.min(ideal, column - count));
+                int distance = Math.abs(2 * start + count - numberOfSeats);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestColumn = start;
+                }
+            }
+            runStart = column + 1;
+        }
+        return bestColumn;
+    }
+
+    private void invalidateRuns(int row) {
+        long summary;
+        do {
+            summary = runSummaries.get(row);
+        } while (!runSummaries.compareAndSet(row, summary, ((summary >>> 32) + 1) << 32));
+    }
+
+    /**
+     * Books a seat that was paid for without a booking. The seat is held while its mark is cleared,
+     * and counts as booked once it is paid again.
+     *
+     * @param index The seat index.
+     * @return True if the seat was booked by this call, false if it was not paid without a booking.
+     */
+    private boolean bookPaid(int index) {
+        if (!isPaidWithoutBooking(index)) {
+            return false;
+        }
+        beginWrite();
+        try {
+            if (!compareAndSetState(index, PAID, HELD)) {
+                return false;
+            }
+            boolean marked = isMarked(index);
+            mark(index, false);
+            compareAndSetState(index, HELD, PAID);
+            return marked;
+        } finally {
+            endWrite();
+        }
+    }
+
+    private boolean isMarked(int index) {
+        return (states.getWord(stateWords + index / SEATS_PER_WORD) & (2L << shift(index))) != 0;
+    }
+
+    /**
+     * Sets or clears the mark of a seat paid without a booking. Only called by whoever holds the seat.
+     */
+    private void mark(int index, boolean value) {
+        int word = stateWords + index / SEATS_PER_WORD;
+        long bit = 2L << shift(index);
+        while (true) {
+            long current = states.getWord(word);
+            long update = value ? current | bit : current & ~bit;
+            if (current == update || states.compareAndSetWord(word, current, update)) {
+                return;
+            }
+        }
+    }
+
+    private static int stateWords(int numberOfRows, int numberOfSeats) {
+        return (numberOfRows * numberOfSeats + SEATS_PER_WORD - 1) / SEATS_PER_WORD;
+    }
+
+    private static int shift(int index) {
+        return (index % SEATS_PER_WORD) * 2;
+    }
+
+    private void count(int index, int state, int delta, boolean marked) {
+        int row = index / numberOfSeats;
+        if (state == BOOKED || state == PAID && !marked) {
+            states.addToCounter(row, delta);
+            states.addToCounter(hallCounters, delta);
+        }
+        if (state == PAID) {
+            states.addToCounter(payedCounters + row, delta);
+            states.addToCounter(hallCounters + 1, delta);
+        }
+        if (state == FREE) {
+            states.addToCounter(freeCounters + row, delta);
+            states.addToCounter(hallCounters + 2, delta);
+        }
+    }
+}
@@ -1,23 +1,23 @@
 package entities;
 
-import java.util.Random;
-
 /**
  * The Ticket class represents a ticket issued for a seat in a hall.
  * It stores a unique code and the associated seat number.
+ * The code is kept as a {@code long}; it is only rendered as text, through the
+ * {@link utils.TicketCodeAllocator} of the {@link EventBooker}, when it is printed.
  */
 public class Ticket {
-    private String code;
+    private long code;
     private String seatNumber;
 
     /**
-     * Constructs a Ticket for the specified seat number.
-     * Generates a unique code for the ticket.
+     * Constructs a Ticket with the specified code for the specified seat number.
      *
+     * @param code The unique code of the ticket.
      * @param seatNumber The seat number associated with this ticket.
      */
-    public Ticket(String seatNumber) {
-        this.code = generateCode();
+    public Ticket(long code, String seatNumber) {
+        this.code = code;
         this.seatNumber = seatNumber;
     }
 
@@ -26,7 +26,7 @@ public class Ticket {
      *
      * @return The ticket code.
      */
-    public String getCode() {
+    public long getCode() {
         return code;
     }
 
@@ -36,7 +36,7 @@ public class Ticket {
      * @param code The new ticket code.
      * @return The current Ticket instance for method chaining.
      */
-    public Ticket setCode(String code) {
+    public Ticket setCode(long code) {
         this.code = code;
         return this;
     }
@@ -60,21 +60,4 @@ public class Ticket {
         this.seatNumber = seatNumber;
         return this;
     }
-
-    /**
-     * Generates a unique alphanumeric code for the ticket.
-     *
-     * @return A randomly generated code.
-     */
-    private String generateCode() {
-        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-        StringBuilder code = new StringBuilder();
-        int size = 5;
-        Random random = new Random();
-        for (int i = 0; i < size; i++) {
-            int index = random.nextInt(alphabet.length());
-            code.append(alphabet.charAt(index));
-        }
-        return code.toString();
-    }
 }
@@ -0,0 +1,16 @@
+package exceptions;
+
+/**
+ * The AdmissionException class is a custom exception that extends RuntimeException.
+ * It is used to turn a request away when too many requests for the same event are already waiting.
+ */
+public class AdmissionException extends RuntimeException {
+    /**
+     * Constructs an AdmissionException with the specified detail message.
+     *
+     * @param message The detail message explaining the cause of the exception.
+     */
+    public AdmissionException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package exceptions;
+
+/**
+ * The DurabilityException class is a custom exception that extends RuntimeException.
+ * It is used to report a change that was made, and stands, but could not be made durable, e.g. because
+ * the journal could not be written. The change may be lost on a restart.
+ */
+public class DurabilityException extends RuntimeException {
+    /**
+     * Constructs a DurabilityException with the specified detail message and cause.
+     *
+     * @param message The detail message explaining the cause of the exception.
+     * @param cause   The failure that kept the change from being made durable.
+     */
+    public DurabilityException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
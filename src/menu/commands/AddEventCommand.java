@@ -31,4 +31,16 @@ public class AddEventCommand implements Commands {
     public void execute(EventBooker eventBooker, Halls halls, String[] data) {
         operation.process(eventBooker, halls, data);
     }
+
+    /**
+     * Returns the routing key of the event the operation changes.
+     *
+     * @param eventBooker The EventBooker instance.
+     * @param data        The data required for the operation.
+     * @return The routing key, or null.
+     */
+    @Override
+    public String getRoutingKey(EventBooker eventBooker, String[] data) {
+        return operation.getRoutingKey(eventBooker, data);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package menu.commands;
+
+import entities.EventBooker;
+import entities.Halls;
+import operations.interfaces.Operation;
+
+/**
+ * The BookBestCommand class implements the Commands interface.
+ * It is responsible for booking the best available block of seats using the specified Operation instance.
+ */
+public class BookBestCommand implements Commands {
+    private final Operation operation;
+
+    /**
+     * Constructs a BookBestCommand with the specified Operation.
+     *
+     * @param operation The operation to be executed.
+     */
+    public BookBestCommand(Operation operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Executes the book best operation using the provided EventBooker, Halls, and data.
+     *
+     * @param eventBooker The EventBooker instance.
+     * @param halls       The Halls instance.
+     * @param data        The data required for the operation.
+     */
+    @Override
+    public void execute(EventBooker eventBooker, Halls halls, String[] data) {
+        operation.process(eventBooker, halls, data);
+    }
+
+    /**
+     * Returns the routing key of the event the operation changes.
+     *
+     * @param eventBooker The EventBooker instance.
+     * @param data        The data required for the operation.
+     * @return The routing key, or null.
+     */
+    @Override
+    public String getRoutingKey(EventBooker eventBooker, String[] data) {
+        return operation.getRoutingKey(eventBooker, data);
+    }
+}
\ No newline at end of file
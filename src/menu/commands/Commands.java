@@ -17,4 +17,15 @@ public interface Commands {
      * @param data        The data required for the command execution.
      */
     void execute(EventBooker eventBooker, Halls halls, String[] data);
+
+    /**
+     * Returns the routing key of the single event the command changes, or null if it changes several or none.
+     *
+     * @param eventBooker The EventBooker instance.
+     * @param data        The data required for the command execution.
+     * @return The routing key, or null.
+     */
+    default String getRoutingKey(EventBooker eventBooker, String[] data) {
+        return null;
+    }
 }
@@ -0,0 +1,34 @@
+package menu.commands;
+
+import entities.EventBooker;
+import entities.Halls;
+import operations.interfaces.Operation;
+
+/**
+ * The ReleasesCommand class implements the Commands interface.
+ * It is responsible for executing an operation to report the released unpaid bookings using the specified Operation instance.
+ */
+public class ReleasesCommand implements Commands {
+    private final Operation operation;
+
+    /**
+     * Constructs a ReleasesCommand with the specified Operation.
+     *
+     * @param operation The operation to be executed.
+     */
+    public ReleasesCommand(Operation operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Executes the releases operation using the provided EventBooker, Halls, and data.
+     *
+     * @param eventBooker The EventBooker instance.
+     * @param halls       The Halls instance.
+     * @param data        The data required for the operation.
+     */
+    @Override
+    public void execute(EventBooker eventBooker, Halls halls, String[] data) {
+        operation.process(eventBooker, halls, data);
+    }
+}
\ No newline at end of file
@@ -1,26 +1,40 @@
 package menu.invoker;
 
 import entities.EventBooker;
-import entities.Hall;
+import entities.HallLayout;
 import entities.Halls;
 import menu.baseCommands.*;
 import menu.commands.*;
 import operations.baseOperation.*;
 import operations.mainOperations.*;
 import utils.CommandNames;
+import utils.Journal;
+import utils.RateLimiter;
+import utils.Session;
+import utils.ShardedWriter;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Scanner;
 
 /**
  * The Invoker class manages and executes commands within the application.
  * It maintains a map of command names to command instances and handles user input to trigger the appropriate commands.
+ * <p>
+ * Commands that change the events, such as {@code book}, {@code buy} or {@code addevent}, are handed to a
+ * {@link ShardedWriter} with one writer thread per core: a command addressed to one event runs on the
+ * shard of that event, so each event sees one ordered stream of mutations, and a command that changes
+ * several events runs on all shards at once. Commands that sell seats pass a {@link WaitingRoom} first.
+ * Read-only commands run directly on the calling thread against the concurrent indexes and seat states.
+ * Every command of a network client is first counted by a per-client {@link RateLimiter}.
+ * </p>
  */
 public class Invoker {
     private Map<CommandNames, Commands> commandsMap;
     private EventBooker eventBooker;
     private Halls halls;
+    private final ShardedWriter writer;
+    private final WaitingRoom waitingRoom;
+    private final RateLimiter rateLimiter;
 
     /**
      * Constructs an Invoker instance, initializes the EventBooker and Halls, and prepares the command map.
@@ -29,28 +43,141 @@ public class Invoker {
         this.eventBooker = new EventBooker();
         this.halls = new Halls();
         this.commandsMap = new HashMap<>();
+        this.writer = new ShardedWriter(Runtime.getRuntime().availableProcessors(), 1024);
+        this.waitingRoom = new WaitingRoom(eventBooker);
+        this.rateLimiter = new RateLimiter();
+        eventBooker.setWriter(writer);
+        fillMap();
+    }
+
+    /**
+     * Returns the EventBooker the commands work on.
+     *
+     * @return The EventBooker.
+     */
+    public EventBooker getEventBooker() {
+        return eventBooker;
+    }
+
+    /**
+     * Returns the Halls the events take place in.
+     *
+     * @return The Halls.
+     */
+    public Halls getHalls() {
+        return halls;
+    }
+
+    /**
+     * Returns the ShardedWriter that runs the mutations.
+     *
+     * @return The ShardedWriter.
+     */
+    public ShardedWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Returns the WaitingRoom the commands that sell seats pass through.
+     *
+     * @return The WaitingRoom.
+     */
+    public WaitingRoom getWaitingRoom() {
+        return waitingRoom;
+    }
+
+    /**
+     * Records every change from now on in the given journal. With {@link Journal.Durability#GROUPED}
+     * the journal is synced after every batch of every writer, before the batch is acknowledged.
+     *
+     * @param journal The Journal.
+     */
+    public void setJournal(Journal journal) {
+        eventBooker.setJournal(journal);
+        writer.setBatchListener(journal.getDurability() == Journal.Durability.GROUPED ? journal::sync : null);
+    }
+
+    /**
+     * Returns the RateLimiter the commands of network clients are counted by.
+     *
+     * @return The RateLimiter.
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
     }
 
     /**
      * Starts the command invocation loop.
      * Continuously reads user input from the console, parses commands, and executes the corresponding operations.
-     * The loop terminates when the user inputs "exit" or "close".
+     * The loop terminates when the user inputs "exit" or "close", or when the console input ends.
      */
     public void invoke() {
-        fillMap();
-        Scanner scanner = new Scanner(System.in);
-        while (true) {
-            String command = scanner.nextLine();
-            String[] data = command.split("\\s++");
-            if (commandsMap.containsKey(CommandNames.getByCode(data[0]))) {
-                try {
-                    commandsMap.get(CommandNames.getByCode(data[0])).execute(eventBooker, halls, data);
-                }catch (RuntimeException e){
-                    System.out.println(e.getMessage());
-                }
-            } else {
-                System.out.println("Invalid command");
+        String line;
+        while ((line = Session.readLine()) != null) {
+            execute(line);
+        }
+    }
+
+    /**
+     * Parses and executes a single command line. The output goes to the {@link Session} of the current thread,
+     * so the same Invoker can serve the console and any number of network clients at once.
+     * Mutations are run by the writer of their event's shard; the call returns once they are done. The file
+     * commands are refused to network clients.
+     *
+     * @param command The command line, e.g. "book 1 1A 2024-02-01 14:10:20 az".
+     */
+    public void execute(String command) {
+        String[] data = command.trim().split("\\s++");
+        CommandNames name = CommandNames.getByCode(data[0]);
+        Commands commands = commandsMap.get(name);
+        if (commands == null) {
+            Session.out().println("Invalid command");
+        } else if (name.isConsoleOnly() && Session.current().isRemote()) {
+            Session.out().println("This command is only available on the console");
+        } else if (!rateLimiter.tryAcquire(Session.current().getClientId())) {
+            Session.out().println("Too many requests, please slow down");
+        } else if (name.isMutation()) {
+            String key = routingKey(commands, data);
+            try {
+                waitingRoom.admit(name, key, () -> {
+                    writer.run(key, () -> run(commands, data));
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                Session.out().println(e.getMessage());
             }
+        } else {
+            run(commands, data);
+        }
+    }
+
+    /**
+     * Returns the routing key of a mutation, or null to run it on all shards, which is also where
+     * malformed commands end up and report their error.
+     *
+     * @param commands The command.
+     * @param data     The parts of the command line.
+     * @return The routing key, or null.
+     */
+    private String routingKey(Commands commands, String[] data) {
+        try {
+            return commands.getRoutingKey(eventBooker, data);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Executes a command, printing the message of any exception it throws.
+     *
+     * @param commands The command.
+     * @param data     The parts of the command line.
+     */
+    private void run(Commands commands, String[] data) {
+        try {
+            commands.execute(eventBooker, halls, data);
+        } catch (RuntimeException e) {
+            Session.out().println(e.getMessage());
         }
     }
 
@@ -64,6 +191,11 @@ public class Invoker {
         commandsMap.put(CommandNames.BOOKING_COMMAND, new BookingCommand(new Booking()));
         commandsMap.put(CommandNames.BOOK_SEAT_COMMAND, new BookSeatCommand(new BookSeat()));
         commandsMap.put(CommandNames.BUY_TICKET_COMMAND, new BuyTicketCommand(new BuyTicket()));
+        commandsMap.put(CommandNames.BOOK_GROUP_COMMAND, new BookGroupCommand(new BookGroup()));
+        commandsMap.put(CommandNames.BUY_GROUP_COMMAND, new BuyGroupCommand(new BuyGroup()));
+        commandsMap.put(CommandNames.BOOK_BEST_COMMAND, new BookBestCommand(new BookBest()));
+        commandsMap.put(CommandNames.HOLD_SEAT_COMMAND, new HoldSeatCommand(new HoldSeat()));
+        commandsMap.put(CommandNames.RELEASES_COMMAND, new ReleasesCommand(new Releases()));
         commandsMap.put(CommandNames.CHECK_COMMAND, new CheckCommand(new Check()));
         commandsMap.put(CommandNames.FREE_SEATS_COMMAND, new FreeSeatsCommand(new FreeSeats()));
         commandsMap.put(CommandNames.MOST_FAMOUS_COMMAND, new MostFamousCommand(new MostFamous()));
@@ -78,10 +210,11 @@ public class Invoker {
         commandsMap.put(CommandNames.HELP, new HelpCommand(new Help()));
         commandsMap.put(CommandNames.EXIT, new ExitCommand(new Exit()));
 
-        halls.addHall("Hall-1", new Hall("1", 5, false));
-        halls.addHall("Hall-2", new Hall("2", 5, false));
-        halls.addHall("Hall-3", new Hall("3", 5, false));
-        halls.addHall("Hall-4", new Hall("4", 10, false));
-        halls.addHall("Hall-5", new Hall("5", 1, false));
+        halls.addHall("Hall-1", new HallLayout("1", 5, 5));
+        halls.addHall("Hall-2", new HallLayout("2", 5, 5));
+        halls.addHall("Hall-3", new HallLayout("3", 5, 5));
+        halls.addHall("Hall-4", new HallLayout("4", 10, 5));
+        halls.addHall("Hall-5", new HallLayout("5", 1, 5));
+        halls.addHall("Hall-6", new HallLayout("6", 250, 400));
     }
 }
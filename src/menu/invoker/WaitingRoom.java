@@ -0,0 +1,200 @@
+package menu.invoker;
+
+import entities.Event;
+import entities.EventBooker;
+import entities.Hall;
+import exceptions.AdmissionException;
+import exceptions.TicketException;
+import utils.CommandNames;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * The WaitingRoom class is the admission control in front of the commands that sell seats, so an
+ * on-sale spike for one event queues in order instead of piling onto its hall all at once.
+ * <p>
+ * Every event that is being sold gets a gate, found by the routing key of the command. A request
+ * that needs free seats ({@code book}, {@code bookgroup}, {@code bookbest}, {@code hold}) is turned
+ * away at once when the hall has no free seat left, and a purchase ({@code buy}, {@code buygroup})
+ * when every seat is paid for. The check reads the counters of the hall the gate remembers, so a
+ * sold-out rejection parses no dates and looks up no event.
+ * </p>
+ * <p>
+ * Otherwise the request takes the next place in the gate's queue. The queue is bounded; beyond
+ * its capacity requests are rejected rather than left to wait. With a drain rate, each place is a
+ * time slot one interval after the previous one, reserved with a compare-and-set, so requests are
+ * let through in arrival order and at most at that rate per event. The sold-out check is repeated
+ * when a request's slot comes up.
+ * </p>
+ */
+public class WaitingRoom {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Set<CommandNames> NEED_FREE_SEATS = EnumSet.of(CommandNames.BOOK_SEAT_COMMAND,
+            CommandNames.BOOK_GROUP_COMMAND, CommandNames.BOOK_BEST_COMMAND, CommandNames.HOLD_SEAT_COMMAND);
+    private static final Set<CommandNames> NEED_UNPAID_SEATS = EnumSet.of(CommandNames.BUY_TICKET_COMMAND,
+            CommandNames.BUY_GROUP_COMMAND);
+
+    private final EventBooker eventBooker;
+    private final Map<String, Gate> gates;
+    private volatile int capacity;
+    private volatile long drainIntervalNanos;
+
+    /**
+     * The admission state of one event.
+     */
+    private static final class Gate {
+        private final Hall hall;
+        private final AtomicInteger inside;
+        private final AtomicLong nextSlotNanos;
+
+        private Gate(Hall hall) {
+            this.hall = hall;
+            this.inside = new AtomicInteger();
+            this.nextSlotNanos = new AtomicLong(Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Constructs a WaitingRoom for the events of the given EventBooker, with a queue of 10000
+     * requests per event and no drain limit.
+     *
+     * @param eventBooker The EventBooker.
+     */
+    public WaitingRoom(EventBooker eventBooker) {
+        this.eventBooker = eventBooker;
+        this.gates = new ConcurrentHashMap<>();
+        this.capacity = 10_000;
+    }
+
+    /**
+     * Sets the number of requests per event that may wait or run at the same time.
+     *
+     * @param capacity The capacity of each queue.
+     * @return The current WaitingRoom instance for method chaining.
+     */
+    public WaitingRoom setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid waiting room capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * Sets how many requests per second are let through for each event.
+     *
+     * @param perSecond The drain rate, or 0 for no limit.
+     * @return The current WaitingRoom instance for method chaining.
+     */
+    public WaitingRoom setDrainRate(int perSecond) {
+        if (perSecond < 0) {
+            throw new IllegalArgumentException("Invalid drain rate: " + perSecond);
+        }
+        this.drainIntervalNanos = perSecond == 0 ? 0 : 1_000_000_000L / perSecond;
+        return this;
+    }
+
+    /**
+     * Runs a task once the request is admitted. Commands that do not sell seats, or that are not
+     * addressed to a known event, run straight away. A command without a routing key changes many
+     * events, so the gates are forgotten afterwards.
+     *
+     * @param command The command.
+     * @param key     The routing key of the command's event, or null.
+     * @param task    The task that executes the command.
+     * @param <T>     The type of the result.
+     * @return The result of the task.
+     * @throws TicketException    If the event is sold out.
+     * @throws AdmissionException If the queue of the event is full.
+     */
+    public <T> T admit(CommandNames command, String key, Supplier<T> task) {
+        if (key == null) {
+            try {
+                return task.get();
+            } finally {
+                gates.clear();
+            }
+        }
+        if (!NEED_FREE_SEATS.contains(command) && !NEED_UNPAID_SEATS.contains(command)) {
+            return task.get();
+        }
+        Gate gate = gates.get(key);
+        if (gate == null) {
+            Hall hall = findHall(key);
+            if (hall == null) {
+                return task.get();
+            }
+            gate = gates.computeIfAbsent(key, k -> new Gate(hall));
+        }
+        checkAvailable(gate, command);
+        if (gate.inside.incrementAndGet() > capacity) {
+            gate.inside.decrementAndGet();
+            throw new AdmissionException("Too many requests for this event, please try again later");
+        }
+        try {
+            long interval = drainIntervalNanos;
+            if (interval > 0) {
+                waitForSlot(gate, interval);
+                checkAvailable(gate, command);
+            }
+            return task.get();
+        } finally {
+            gate.inside.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of requests for an event that are waiting or running.
+     *
+     * @param key The routing key of the event.
+     * @return The number of requests.
+     */
+    public int getQueueLength(String key) {
+        Gate gate = gates.get(key);
+        return gate == null ? 0 : gate.inside.get();
+    }
+
+    private static void checkAvailable(Gate gate, CommandNames command) {
+        if (NEED_FREE_SEATS.contains(command) ? gate.hall.getFreeCount() == 0 : gate.hall.isFull()) {
+            throw new TicketException("The event is sold out");
+        }
+    }
+
+    private static void waitForSlot(Gate gate, long interval) {
+        long now = System.nanoTime();
+        long slot;
+        while (true) {
+            long next = gate.nextSlotNanos.get();
+            slot = next == Long.MIN_VALUE || next - now < 0 ? now : next;
+            if (gate.nextSlotNanos.compareAndSet(next, slot + interval)) {
+                break;
+            }
+        }
+        for (long wait = slot - System.nanoTime(); wait > 0; wait = slot - System.nanoTime()) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private Hall findHall(String key) {
+        // the key is the date, 19 characters, a space and the name
+        if (key.length() < 21) {
+            return null;
+        }
+        try {
+            Event event = eventBooker.getEventByNameAndDate(key.substring(20),
+                    LocalDateTime.parse(key.substring(0, 19), DATE_FORMAT));
+            return event.getHall();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
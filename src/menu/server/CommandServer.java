@@ -0,0 +1,96 @@
+package menu.server;
+
+import menu.invoker.Invoker;
+import utils.Session;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The CommandServer class serves the text command protocol of the {@link Invoker} over TCP, so many
+ * box office clients can share one set of events.
+ * <p>
+ * Every connection is handled by its own virtual thread, which reads one command per line, executes it
+ * with the shared Invoker and writes the output back to the same connection, followed by a line holding
+ * a single {@value #END_OF_RESPONSE}, so a client knows where the response to a command ends.
+ * The output is routed through a {@link Session} bound to the connection's thread.
+ * {@code exit} closes the connection only, and the file commands {@code open}, {@code close}, {@code save}
+ * and {@code saveas} are refused: they would read and write any path of the server.
+ * </p>
+ */
+public class CommandServer {
+    /** The line that ends the response to every command. */
+    public static final String END_OF_RESPONSE = ".";
+
+    private final Invoker invoker;
+    private final int port;
+    private final AtomicInteger connections;
+
+    /**
+     * Constructs a CommandServer for the given Invoker.
+     *
+     * @param invoker The Invoker that executes the commands.
+     * @param port    The TCP port to listen on.
+     */
+    public CommandServer(Invoker invoker, int port) {
+        this.invoker = invoker;
+        this.port = port;
+        this.connections = new AtomicInteger();
+    }
+
+    /**
+     * Returns the number of clients currently connected.
+     *
+     * @return The number of open connections.
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Accepts connections until the server socket fails. Each connection gets its own virtual thread.
+     *
+     * @throws IOException If the port cannot be opened.
+     */
+    public void serve() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port, 4096)) {
+            System.out.println("Listening on port " + serverSocket.getLocalPort());
+            while (true) {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().name("client-" + socket.getPort()).start(() -> handle(socket));
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        connections.incrementAndGet();
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false, StandardCharsets.UTF_8)) {
+            socket.setTcpNoDelay(true);
+            Session session = new Session(out, in, true, socket.getInetAddress().getHostAddress());
+            Session.bind(session);
+            String line;
+            while (!session.isClosed() && (line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                invoker.execute(line);
+                out.println(END_OF_RESPONSE);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client went away; nothing to answer
+        } finally {
+            Session.unbind();
+            connections.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package menu.server;
+
+import entities.SeatStates;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The ContentionBenchmark class measures the seat state transitions of one hall under contention.
+ * <p>
+ * The given number of threads, 64 by default, hammer the {@link SeatStates} of one hall with a mix of
+ * {@code book}, {@code unbook}, {@code pay} and refunds of random seats for one second, first with the
+ * lock-free compare-and-set transitions alone and then with every transition behind one lock for the
+ * hall, as a lock per event would do. It does so for a hall of 50 seats, where nearly every transition
+ * collides, and one of 100,000 seats, where few do, and prints the transitions per second and the share
+ * that succeeded. After each run it checks that the counters of the hall match its seat states, and
+ * exits with status 1 if they do not.
+ * </p>
+ * <p>
+ * Usage: {@code java menu.server.ContentionBenchmark [threads]}
+ * </p>
+ */
+public class ContentionBenchmark {
+    private static final long DURATION = 1_000_000_000L;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of threads, 64 by default
+     * @throws InterruptedException if the benchmark is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        for (int rows : new int[]{10, 250}) {
+            int seatsPerRow = rows == 10 ? 5 : 400;
+            // the first run of each hall warms up the JIT compiler
+            run(threads, rows, seatsPerRow, false, false);
+            run(threads, rows, seatsPerRow, false, true);
+            run(threads, rows, seatsPerRow, true, true);
+        }
+    }
+
+    private static void run(int threads, int rows, int seatsPerRow, boolean locked, boolean print) throws InterruptedException {
+        SeatStates states = new SeatStates(rows, seatsPerRow);
+        int capacity = rows * seatsPerRow;
+        LongAdder transitions = new LongAdder();
+        LongAdder succeeded = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long success = 0;
+                try {
+                    start.await();
+                    while (!stop.get()) {
+                        for (int i = 0; i < 256; i++) {
+                            int seat = random.nextInt(capacity);
+                            int kind = random.nextInt(10);
+                            boolean result;
+                            if (locked) {
+                                synchronized (states) {
+                                    result = transition(states, seat, kind);
+                                }
+                            } else {
+                                result = transition(states, seat, kind);
+                            }
+                            success += result ? 1 : 0;
+                        }
+                        count += 256;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    transitions.add(count);
+                    succeeded.add(success);
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(DURATION / 1_000_000);
+        stop.set(true);
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        check(states, capacity);
+        if (print) {
+            System.out.printf("%d seats, %d threads, %s: %d transitions/s, %d%% succeeded%n", capacity, threads,
+                    locked ? "one lock per hall" : "lock-free", transitions.sum() * 1_000_000_000L / elapsed,
+                    succeeded.sum() * 100 / Math.max(1, transitions.sum()));
+        }
+    }
+
+    private static boolean transition(SeatStates states, int seat, int kind) {
+        if (kind < 4) {
+            return states.book(seat, "benchmark");
+        } else if (kind < 8) {
+            return states.unbook(seat);
+        } else if (kind < 9) {
+            return states.pay(seat);
+        }
+        // a refund, so the hall does not fill up with paid seats
+        if (!states.isPayed(seat)) {
+            return false;
+        }
+        states.setPayed(seat, false);
+        return true;
+    }
+
+    private static void check(SeatStates states, int capacity) {
+        int booked = 0;
+        int payed = 0;
+        int free = 0;
+        for (int index = 0; index < capacity; index++) {
+            booked += states.isBooked(index) ? 1 : 0;
+            payed += states.isPayed(index) ? 1 : 0;
+            free += states.isFree(index) ? 1 : 0;
+        }
+        if (booked != states.getBookedCount() || payed != states.getPayedCount() || free != states.getFreeCount()) {
+            System.out.printf("The counters do not match the seat states: booked %d/%d, paid %d/%d, free %d/%d%n",
+                    booked, states.getBookedCount(), payed, states.getPayedCount(), free, states.getFreeCount());
+            System.exit(1);
+        }
+    }
+}
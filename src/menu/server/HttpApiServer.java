@@ -0,0 +1,339 @@
+package menu.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import entities.Event;
+import entities.EventBooker;
+import entities.HallSnapshot;
+import entities.Ticket;
+import exceptions.AdmissionException;
+import exceptions.EventException;
+import exceptions.ThereIsNoSuchEvent;
+import exceptions.ThereIsNoSuchSeat;
+import exceptions.TicketException;
+import menu.invoker.Invoker;
+import menu.invoker.WaitingRoom;
+import operations.mainOperations.BookSeat;
+import operations.mainOperations.Booking;
+import operations.mainOperations.BuyTicket;
+import operations.mainOperations.Check;
+import operations.mainOperations.FreeSeats;
+import operations.mainOperations.MostFamous;
+import operations.mainOperations.Report;
+import utils.JsonWriter;
+import utils.CommandNames;
+import utils.RateLimiter;
+import utils.ShardedWriter;
+import utils.TicketCodeAllocator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * The HttpApiServer class exposes the main operations as an HTTP/JSON API on the JDK's embedded
+ * {@link HttpServer}. Requests are handled on virtual threads and connections are kept alive, so a
+ * client can send its requests back to back, or pipelined, over one connection.
+ * <p>
+ * Parameters are passed in the query string, or for POST also as a form-encoded body; dates use the
+ * {@code yyyy-MM-dd HH:mm:ss} format of the commands. The handlers call the typed methods of the
+ * operations in {@code operations.mainOperations}, the same ones the text commands use, so no
+ * command line is built or split. Bookings and purchases go through the {@link ShardedWriter} of the
+ * Invoker, on the shard of their event, like the text commands do. Every response is a JSON object; failures carry an {@code error}
+ * member and a 400, 404, 405, 409 or, when the waiting room of an event is full or the client is over
+ * the rate limit of the Invoker's {@link RateLimiter}, 429 status; any other failure is a 500.
+ * </p>
+ * <ul>
+ *     <li>{@code GET /bookings?name=&date=} - booked seats, by name and/or date or of all events</li>
+ *     <li>{@code GET /freeseats?name=&date=} - unbooked and unpurchased seats per row</li>
+ *     <li>{@code POST /book} with {@code name, date, row, seat, note} - books a seat</li>
+ *     <li>{@code POST /buy} with {@code name, date, row, seat} - buys a ticket</li>
+ *     <li>{@code GET /check?code=} - validates a ticket code</li>
+ *     <li>{@code GET /report?from=&to=&hall=} - tickets sold per hall in a date range</li>
+ *     <li>{@code GET /mostfamous} - the best selling event</li>
+ * </ul>
+ */
+public class HttpApiServer {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final EventBooker eventBooker;
+    private final ShardedWriter writer;
+    private final WaitingRoom waitingRoom;
+    private final RateLimiter rateLimiter;
+    private final int port;
+    private final Booking booking;
+    private final FreeSeats freeSeats;
+    private final BookSeat bookSeat;
+    private final BuyTicket buyTicket;
+    private final Check check;
+    private final Report report;
+    private final MostFamous mostFamous;
+    private HttpServer server;
+
+    /**
+     * Constructs an HttpApiServer over the events of the given Invoker.
+     *
+     * @param invoker The Invoker whose events and writer the API uses.
+     * @param port    The TCP port to listen on.
+     */
+    public HttpApiServer(Invoker invoker, int port) {
+        this.eventBooker = invoker.getEventBooker();
+        this.writer = invoker.getWriter();
+        this.waitingRoom = invoker.getWaitingRoom();
+        this.rateLimiter = invoker.getRateLimiter();
+        this.port = port;
+        this.booking = new Booking();
+        this.freeSeats = new FreeSeats();
+        this.bookSeat = new BookSeat();
+        this.buyTicket = new BuyTicket();
+        this.check = new Check();
+        this.report = new Report();
+        this.mostFamous = new MostFamous();
+    }
+
+    /**
+     * Starts the server in the background.
+     *
+     * @throws IOException If the port cannot be opened.
+     */
+    public void start() throws IOException {
+        // without TCP_NODELAY small responses wait for the client's delayed ACK; read when the first server is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 4096);
+        route("/bookings", "GET", this::bookings);
+        route("/freeseats", "GET", this::freeSeats);
+        route("/book", "POST", this::book);
+        route("/buy", "POST", this::buy);
+        route("/check", "GET", this::check);
+        route("/report", "GET", this::report);
+        route("/mostfamous", "GET", this::mostFamous);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        System.out.println("HTTP API listening on port " + server.getAddress().getPort());
+    }
+
+    /**
+     * Stops the server, waiting at most the given number of seconds for requests in progress.
+     *
+     * @param delay The maximum time to wait, in seconds.
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+    }
+
+    private void bookings(Map<String, String> params, JsonWriter json) {
+        String name = params.get("name");
+        String date = params.get("date");
+        List<Event> events = booking.findEvents(eventBooker, name, date == null ? null : parseDate(date));
+        json.name("events").beginArray();
+        for (Event event : events) {
+            event(json, event);
+            HallSnapshot hall = eventBooker.snapshot(event);
+            json.name("bookings").beginArray();
+            for (int i = hall.nextBooked(0); i >= 0; i = hall.nextBooked(i + 1)) {
+                json.beginObject()
+                        .name("seat").value(hall.getSeatLabel(i))
+                        .name("note").value(hall.getNote(i))
+                        .endObject();
+            }
+            json.endArray().endObject();
+        }
+        json.endArray();
+    }
+
+    private void freeSeats(Map<String, String> params, JsonWriter json) {
+        int[][] rows = freeSeats.freeSeats(eventBooker, required(params, "name"), parseDate(required(params, "date")));
+        json.name("rows").beginArray();
+        for (int i = 0; i < rows.length; i++) {
+            json.beginObject()
+                    .name("row").value(i + 1)
+                    .name("unbooked").value(rows[i][0])
+                    .name("unpurchased").value(rows[i][1])
+                    .endObject();
+        }
+        json.endArray();
+    }
+
+    private void book(Map<String, String> params, JsonWriter json) {
+        String name = required(params, "name");
+        String key = ShardedWriter.routingKey(required(params, "date"), name);
+        LocalDateTime date = parseDate(required(params, "date"));
+        int row = parseInt(required(params, "row"));
+        String seat = required(params, "seat");
+        String note = params.getOrDefault("note", "");
+        boolean booked = waitingRoom.admit(CommandNames.BOOK_SEAT_COMMAND, key,
+                () -> writer.call(key, () -> bookSeat.book(eventBooker, name, date, row, seat, note)));
+        if (!booked) {
+            throw new TicketException("The seat is already booked.");
+        }
+        json.name("booked").value(true);
+    }
+
+    private void buy(Map<String, String> params, JsonWriter json) {
+        String name = required(params, "name");
+        String key = ShardedWriter.routingKey(required(params, "date"), name);
+        LocalDateTime date = parseDate(required(params, "date"));
+        int row = parseInt(required(params, "row"));
+        String seat = required(params, "seat");
+        Ticket ticket = waitingRoom.admit(CommandNames.BUY_TICKET_COMMAND, key,
+                () -> writer.call(key, () -> buyTicket.buy(eventBooker, name, date, row, seat)));
+        json.name("code").value(eventBooker.getTicketCodeAllocator().render(ticket.getCode()))
+                .name("seat").value(ticket.getSeatNumber());
+    }
+
+    private void check(Map<String, String> params, JsonWriter json) {
+        Event event;
+        try {
+            event = check.check(eventBooker, required(params, "code"));
+        } catch (TicketException e) {
+            json.name("valid").value(false);
+            return;
+        }
+        json.name("valid").value(true).name("event");
+        event(json, event);
+        json.endObject();
+    }
+
+    private void report(Map<String, String> params, JsonWriter json) {
+        LocalDateTime from = parseDate(required(params, "from"));
+        LocalDateTime to = parseDate(required(params, "to"));
+        if (from.isAfter(to)) {
+            LocalDateTime temp = from;
+            from = to;
+            to = temp;
+        }
+        TicketCodeAllocator allocator = eventBooker.getTicketCodeAllocator();
+        json.name("halls").beginArray();
+        for (Map.Entry<String, List<Event>> entry : report.report(eventBooker, from, to, params.get("hall")).entrySet()) {
+            json.beginObject().name("hall").value(entry.getKey()).name("tickets").beginArray();
+            for (Event event : entry.getValue()) {
+                for (Ticket ticket : event.getHall().getTickets()) {
+                    json.beginObject()
+                            .name("code").value(allocator.render(ticket.getCode()))
+                            .name("seat").value(ticket.getSeatNumber())
+                            .name("event").value(event.getName())
+                            .endObject();
+                }
+            }
+            json.endArray().endObject();
+        }
+        json.endArray();
+    }
+
+    private void mostFamous(Map<String, String> params, JsonWriter json) {
+        Map.Entry<String, Integer> entry = mostFamous.mostFamous(eventBooker);
+        json.name("name").value(entry.getKey()).name("ticketsSold").value(entry.getValue());
+    }
+
+    /**
+     * Writes the common members of an event into a new object, which the caller must end.
+     */
+    private static void event(JsonWriter json, Event event) {
+        json.beginObject()
+                .name("name").value(event.getName())
+                .name("date").value(event.getDate().format(DATE_FORMAT))
+                .name("hall").value(event.getHall().getNumber());
+    }
+
+    private void route(String path, String method, Handler handler) {
+        server.createContext(path, exchange -> {
+            try (exchange) {
+                int status = 200;
+                JsonWriter json = new JsonWriter().beginObject();
+                if (!exchange.getRequestMethod().equals(method) || !exchange.getRequestURI().getPath().equals(path)) {
+                    status = exchange.getRequestURI().getPath().equals(path) ? 405 : 404;
+                    json.name("error").value(status == 405 ? "Use " + method : "Not found");
+                } else if (!rateLimiter.tryAcquire(exchange.getRemoteAddress().getAddress().getHostAddress())) {
+                    status = 429;
+                    json.name("error").value("Too many requests, please slow down");
+                } else {
+                    try {
+                        handler.handle(parameters(exchange), json);
+                    } catch (ThereIsNoSuchEvent | ThereIsNoSuchSeat e) {
+                        status = 404;
+                        json = new JsonWriter().beginObject().name("error").value(e.getMessage());
+                    } catch (TicketException | EventException e) {
+                        status = 409;
+                        json = new JsonWriter().beginObject().name("error").value(e.getMessage());
+                    } catch (AdmissionException e) {
+                        status = 429;
+                        json = new JsonWriter().beginObject().name("error").value(e.getMessage());
+                    } catch (IllegalArgumentException | DateTimeParseException e) {
+                        status = 400;
+                        json = new JsonWriter().beginObject().name("error").value(e.getMessage());
+                    } catch (RuntimeException e) {
+                        // an unexpected failure still gets a JSON answer instead of a dropped connection
+                        status = 500;
+                        json = new JsonWriter().beginObject().name("error")
+                                .value(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                    }
+                }
+                byte[] body = json.endObject().toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        decode(exchange.getRequestURI().getRawQuery(), params);
+        if (exchange.getRequestMethod().equals("POST")) {
+            try (InputStream in = exchange.getRequestBody()) {
+                decode(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void decode(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static LocalDateTime parseDate(String date) {
+        return LocalDateTime.parse(date, DATE_FORMAT);
+    }
+
+    private static int parseInt(String number) {
+        return Integer.parseInt(number);
+    }
+
+    /**
+     * Handles one route: reads the request parameters and writes the members of the response object.
+     */
+    private interface Handler {
+        void handle(Map<String, String> params, JsonWriter json);
+    }
+}
@@ -0,0 +1,152 @@
+package menu.server;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The HttpLoadClient class is a load generator for the {@link HttpApiServer}.
+ * <p>
+ * It sends GET requests for one path at a fixed total rate over a number of keep-alive connections.
+ * Requests are sent on schedule whether or not earlier responses have arrived, so they are pipelined
+ * whenever the server falls behind. Latency is measured from the time a request was scheduled, not
+ * sent, so a slow server cannot hide its queueing delay. The first second is a warm-up and is not measured.
+ * </p>
+ * <p>
+ * Usage: {@code java menu.server.HttpLoadClient <host> <port> <connections> <requestsPerSecond> <seconds> <path>}
+ * </p>
+ */
+public class HttpLoadClient {
+
+    /**
+     * Runs the load test.
+     *
+     * @param args the host, port, number of connections, total request rate, duration in seconds and request path
+     * @throws Exception if the test is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int connections = Integer.parseInt(args[2]);
+        int rate = Integer.parseInt(args[3]);
+        int seconds = Integer.parseInt(args[4]);
+        String path = args[5];
+
+        byte[] request = ("GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        long interval = TimeUnit.SECONDS.toNanos(1) * connections / rate;
+        int perConnection = (int) (TimeUnit.SECONDS.toNanos(seconds + 1) / interval);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(1);
+
+        long[][] latencies = new long[connections][];
+        int[] errors = new int[connections];
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            int client = i;
+            // spread the connections evenly over one interval
+            long first = start + interval * i / connections;
+            Thread.ofVirtual().start(() -> {
+                try {
+                    latencies[client] = run(host, port, request, first, interval, perConnection, measureFrom, errors, client);
+                } catch (IOException | InterruptedException e) {
+                    errors[client]++;
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+
+        long[] all = Arrays.stream(latencies).filter(l -> l != null).flatMapToLong(Arrays::stream)
+                .filter(l -> l >= 0).sorted().toArray();
+        System.out.printf("%d requests measured at %d req/s over %d connections, %d errors%n",
+                all.length, rate, connections, Arrays.stream(errors).sum());
+        if (all.length > 0) {
+            System.out.printf("latency p50 %d us, p90 %d us, p99 %d us, p99.9 %d us, max %d us%n",
+                    all[all.length / 2] / 1000, all[(int) (all.length * 0.9)] / 1000,
+                    all[(int) (all.length * 0.99)] / 1000, all[(int) (all.length * 0.999)] / 1000,
+                    all[all.length - 1] / 1000);
+        }
+    }
+
+    private static long[] run(String host, int port, byte[] request, long first, long interval, int count,
+                              long measureFrom, int[] errors, int client) throws IOException, InterruptedException {
+        long[] latencies = new long[count];
+        ConcurrentLinkedQueue<Long> scheduled = new ConcurrentLinkedQueue<>();
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            Thread reader = Thread.ofVirtual().start(() -> {
+                try {
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    for (int i = 0; i < count; i++) {
+                        int status = readResponse(in);
+                        long now = System.nanoTime();
+                        Long sentAt;
+                        while ((sentAt = scheduled.poll()) == null) {
+                            Thread.onSpinWait();
+                        }
+                        latencies[i] = sentAt >= measureFrom ? now - sentAt : -1;
+                        if (status != 200) {
+                            errors[client]++;
+                        }
+                    }
+                } catch (IOException e) {
+                    errors[client]++;
+                }
+            });
+            for (int i = 0; i < count; i++) {
+                long at = first + i * interval;
+                long wait = at - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                scheduled.add(at);
+                out.write(request);
+                out.flush();
+            }
+            reader.join();
+        }
+        return latencies;
+    }
+
+    /**
+     * Reads one response: the status line, the headers and a body of Content-Length bytes.
+     *
+     * @return The status code.
+     */
+    private static int readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        int contentLength = 0;
+        String header;
+        while (!(header = readLine(in)).isEmpty()) {
+            if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        in.skipNBytes(contentLength);
+        return Integer.parseInt(statusLine.substring(9, 12));
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package menu.server;
+
+import entities.Event;
+import entities.EventBooker;
+import entities.Hall;
+import entities.HallLayout;
+import menu.invoker.Invoker;
+import operations.mainOperations.BookSeat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The LargeHallBenchmark class tests and times booking in Hall-6, a hall of 250 rows of 400 seats.
+ * <p>
+ * It first checks the seat addressing of the hall: that every seat number maps to its own seat index
+ * and back, also past the 26th column, where the labels go on with AA, AB and so on. Then, for each
+ * round, it adds a new event in the hall and books every one of its 100,000 seats in random order
+ * through the {@code book} operation, and checks that every seat was booked exactly once and that the
+ * hall counts them. It prints the time per seat lookup and per booking of each round; the first rounds
+ * warm up the JIT compiler. It exits with status 1 if a check fails.
+ * </p>
+ * <p>
+ * Usage: {@code java menu.server.LargeHallBenchmark [rounds]}
+ * </p>
+ */
+public class LargeHallBenchmark {
+    private static final String HALL = "Hall-6";
+
+    /**
+     * Runs the test and the benchmark.
+     *
+     * @param args the number of rounds, 5 by default
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Invoker invoker = new Invoker();
+        HallLayout layout = invoker.getHalls().getLayoutByName(HALL);
+        int capacity = layout.getCapacity();
+        List<String> failures = new ArrayList<>();
+
+        checkAddressing(layout, failures);
+        for (int round = 1; round <= rounds && failures.isEmpty(); round++) {
+            runRound(invoker, round, failures);
+        }
+        if (failures.isEmpty()) {
+            System.out.println("Every seat of the " + capacity + " was addressed and booked exactly once");
+            return;
+        }
+        failures.forEach(System.out::println);
+        System.exit(1);
+    }
+
+    private static void checkAddressing(HallLayout layout, List<String> failures) {
+        int seatsPerRow = layout.getNUMBER_OF_SEATS();
+        for (int index = 0; index < layout.getCapacity(); index++) {
+            String number = layout.getSeatLabel(index);
+            if (layout.getSeatIndex(index / seatsPerRow + 1, number) != index || layout.getSeatIndex(number) != index) {
+                failures.add("Seat " + number + " does not map back to seat index " + index);
+            }
+        }
+        expectLabel(layout, failures, 25, "1Z");
+        expectLabel(layout, failures, 26, "1AA");
+        expectLabel(layout, failures, 51, "1AZ");
+        expectLabel(layout, failures, 52, "1BA");
+        expectLabel(layout, failures, layout.getCapacity() - 1, layout.getNUMBER_OF_ROWS() + "OJ");
+    }
+
+    private static void expectLabel(HallLayout layout, List<String> failures, int index, String expected) {
+        if (!layout.getSeatLabel(index).equals(expected)) {
+            failures.add("Seat index " + index + " is labelled " + layout.getSeatLabel(index) + " instead of " + expected);
+        }
+    }
+
+    private static void runRound(Invoker invoker, int round, List<String> failures) {
+        EventBooker eventBooker = invoker.getEventBooker();
+        String name = "LargeHall" + round;
+        LocalDateTime date = LocalDateTime.of(2099, 8, 1, 20, 0).plusDays(round);
+        Event event = new Event(date, name, invoker.getHalls().createHall(HALL));
+        eventBooker.addEvent(event);
+        Hall hall = event.getHall();
+        HallLayout layout = hall.getLayout();
+        int capacity = layout.getCapacity();
+        int seatsPerRow = layout.getNUMBER_OF_SEATS();
+
+        int[] order = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            order[i] = i;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = capacity - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        String[] numbers = new String[capacity];
+        for (int i = 0; i < capacity; i++) {
+            numbers[i] = layout.getSeatLabel(order[i]);
+        }
+
+        long begin = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < capacity; i++) {
+            sum += hall.getSeatIndex(order[i] / seatsPerRow + 1, numbers[i]);
+        }
+        long lookups = System.nanoTime() - begin;
+        if (sum != (long) capacity * (capacity - 1) / 2) {
+            failures.add("Round " + round + ": the seat lookups did not find every seat once");
+        }
+
+        BookSeat bookSeat = new BookSeat();
+        int booked = 0;
+        begin = System.nanoTime();
+        for (int i = 0; i < capacity; i++) {
+            if (bookSeat.book(eventBooker, name, date, order[i] / seatsPerRow + 1, numbers[i], "benchmark")) {
+                booked++;
+            }
+        }
+        long bookings = System.nanoTime() - begin;
+
+        if (booked != capacity) {
+            failures.add("Round " + round + ": " + booked + " of " + capacity + " seats were booked");
+        }
+        if (bookSeat.book(eventBooker, name, date, 1, layout.getSeatLabel(0), "again")) {
+            failures.add("Round " + round + ": a booked seat was booked again");
+        }
+        if (hall.getBookedCount() != capacity || hall.getFreeCount() != 0) {
+            failures.add("Round " + round + ": the hall counts " + hall.getBookedCount() + " booked and "
+                    + hall.getFreeCount() + " free seats");
+        }
+        System.out.printf("round %d: seat lookup %d ns, booking %d ns, %d bookings/s%n", round,
+                lookups / capacity, bookings / capacity, capacity * 1_000_000_000L / Math.max(1, bookings));
+        eventBooker.removeEvent(event);
+    }
+}
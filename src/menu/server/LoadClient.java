@@ -0,0 +1,140 @@
+package menu.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The LoadClient class is a load generator for the {@link CommandServer}.
+ * <p>
+ * It opens the given number of connections at once, one virtual thread each, waits until all of them
+ * are connected, and then has every connection send a mix of {@code book}, {@code unbook} and
+ * {@code check} commands for random seats of a test event in Hall-6, one command at a time.
+ * It prints the throughput and the latency percentiles of the commands.
+ * </p>
+ * <p>
+ * Usage: {@code java menu.server.LoadClient <host> <port> <connections> <commandsPerConnection>}
+ * </p>
+ */
+public class LoadClient {
+    private static final String EVENT = "2099-06-01 20:00:00 LoadTest";
+
+    /**
+     * Runs the load test.
+     *
+     * @param args the host, port, number of connections and number of commands per connection
+     * @throws Exception if the test event cannot be created or the test is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int connections = Integer.parseInt(args[2]);
+        int commands = Integer.parseInt(args[3]);
+
+        try (Socket socket = new Socket(host, port)) {
+            Connection setup = new Connection(socket);
+            setup.send("addevent " + EVENT.substring(0, 19) + " Hall-6 " + EVENT.substring(20));
+        }
+
+        long[][] latencies = new long[connections][];
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            int client = i;
+            Thread.ofVirtual().start(() -> {
+                try (Socket socket = new Socket(host, port)) {
+                    Connection connection = new Connection(socket);
+                    connected.countDown();
+                    start.await();
+                    latencies[client] = run(connection, commands);
+                } catch (IOException | InterruptedException e) {
+                    failed.incrementAndGet();
+                    connected.countDown();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        connected.await();
+        System.out.println(connections - failed.get() + " connections open");
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        long[] all = Arrays.stream(latencies).filter(l -> l != null).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d commands over %d connections in %d ms: %d commands/s, %d failed connections%n",
+                all.length, connections, elapsed / 1_000_000, all.length * 1_000_000_000L / Math.max(1, elapsed), failed.get());
+        if (all.length > 0) {
+            System.out.printf("latency p50 %d us, p99 %d us, p99.9 %d us, max %d us%n",
+                    all[all.length / 2] / 1000, all[(int) (all.length * 0.99)] / 1000,
+                    all[(int) (all.length * 0.999)] / 1000, all[all.length - 1] / 1000);
+        }
+    }
+
+    private static long[] run(Connection connection, int commands) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencies = new long[commands];
+        for (int i = 0; i < commands; i++) {
+            int row = 1 + random.nextInt(250);
+            String seat = row + column(random.nextInt(400));
+            int kind = random.nextInt(10);
+            String command;
+            if (kind < 5) {
+                command = "book " + row + " " + seat + " " + EVENT;
+            } else if (kind < 9) {
+                command = "unbook " + row + " " + seat + " " + EVENT;
+            } else {
+                command = "check " + Long.toString(random.nextLong(1L << 40), 36);
+            }
+            long begin = System.nanoTime();
+            connection.send(command);
+            latencies[i] = System.nanoTime() - begin;
+        }
+        connection.send("exit");
+        return latencies;
+    }
+
+    private static String column(int column) {
+        StringBuilder label = new StringBuilder();
+        for (int value = column + 1; value > 0; value = (value - 1) / 26) {
+            label.append((char) ('A' + (value - 1) % 26));
+        }
+        return label.reverse().toString();
+    }
+
+    /**
+     * One client connection: sends a command and reads its response up to the end-of-response line.
+     */
+    private static final class Connection {
+        private final BufferedReader in;
+        private final PrintStream out;
+
+        private Connection(Socket socket) throws IOException {
+            socket.setTcpNoDelay(true);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+        }
+
+        private void send(String command) throws IOException {
+            out.println(command);
+            out.flush();
+            String line;
+            while ((line = in.readLine()) != null && !line.equals(CommandServer.END_OF_RESPONSE)) {
+                // the response itself is not checked
+            }
+            if (line == null) {
+                throw new IOException("Connection closed");
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package menu.server;
+
+import utils.RateLimiter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * The RateLimiterBenchmark class measures what the {@link RateLimiter} adds to every command.
+ * <p>
+ * For one second each, it calls {@link RateLimiter#tryAcquire(String)} from one thread and then from
+ * the given number of threads, 4 by default, for a single client that every call competes for, and
+ * for one million distinct clients picked at random, so most lookups miss the processor caches. The
+ * limiter allows 1000 commands per second per client, so the single client is mostly refused and
+ * flagged as abusive. The million clients are all seen once before they are timed; the time of that
+ * first command, which adds the client, is printed separately. Picking a random client id out of a
+ * million misses the caches as well, while a real command has the id of its client at hand, so every
+ * run is repeated without the limiter, only reading the id, and the difference is what the limiter
+ * adds. It prints the time per call, counting only as many threads as there are processors, the time
+ * the limiter adds, the share of calls allowed and the number of clients tracked, and exits with
+ * status 1 if the limiter adds a microsecond or more to a call.
+ * </p>
+ * <p>
+ * Usage: {@code java menu.server.RateLimiterBenchmark [threads]}
+ * </p>
+ */
+public class RateLimiterBenchmark {
+    private static final long DURATION = 1_000_000_000L;
+    private static final int CLIENTS = 1_000_000;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of threads, 4 by default
+     * @throws InterruptedException if the benchmark is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        String[] many = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            many[i] = "10." + (i >> 16) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF);
+        }
+        String[] one = {"10.0.0.1"};
+
+        // the first run warms up the JIT compiler
+        run(threads, new RateLimiter().setRate(1000, 2000), many, false);
+        run(threads, null, many, false);
+        RateLimiter known = new RateLimiter().setRate(1000, 2000);
+        long begin = System.nanoTime();
+        for (String client : many) {
+            known.tryAcquire(client);
+        }
+        System.out.printf("first command of %d clients: %d ns per call%n", CLIENTS, (System.nanoTime() - begin) / CLIENTS);
+
+        long worst = 0;
+        worst = Math.max(worst, run(1, new RateLimiter().setRate(1000, 2000), one, true));
+        worst = Math.max(worst, run(1, known, many, true));
+        worst = Math.max(worst, run(threads, new RateLimiter().setRate(1000, 2000), one, true));
+        worst = Math.max(worst, run(threads, known, many, true));
+        if (worst >= 1000) {
+            System.out.println("The limiter added " + worst + " ns to a call, more than the budget of a microsecond");
+            System.exit(1);
+        }
+        System.out.println("The limiter added less than a microsecond to every call");
+    }
+
+    /**
+     * Times calls of the limiter, or only reads the client ids if it is null, and returns the time per
+     * call, less the time of reading the ids if the limiter was timed.
+     */
+    private static long run(int threads, RateLimiter rateLimiter, String[] clients, boolean print) throws InterruptedException {
+        ToIntFunction<String> call = rateLimiter == null
+                ? client -> client.charAt(client.length() - 1) & 1
+                : client -> rateLimiter.tryAcquire(client) ? 1 : 0;
+        LongAdder calls = new LongAdder();
+        LongAdder allowed = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long passed = 0;
+                try {
+                    start.await();
+                    while (!stop.get()) {
+                        for (int i = 0; i < 1024; i++) {
+                            passed += call.applyAsInt(clients[random.nextInt(clients.length)]);
+                        }
+                        count += 1024;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    calls.add(count);
+                    allowed.add(passed);
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(DURATION / 1_000_000);
+        stop.set(true);
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        // threads beyond the processors only take turns, so they do not add to the time of a call
+        long perCall = elapsed * Math.min(threads, Runtime.getRuntime().availableProcessors()) / Math.max(1, calls.sum());
+        if (rateLimiter == null) {
+            return perCall;
+        }
+        long added = perCall - run(threads, null, clients, false);
+        if (print) {
+            System.out.printf("%d threads, %d clients: %d ns per call, %d ns added by the limiter, %d calls/s,"
+                            + " %d%% allowed, %d clients tracked%n",
+                    threads, clients.length, perCall, added, calls.sum() * 1_000_000_000L / elapsed,
+                    allowed.sum() * 100 / Math.max(1, calls.sum()), rateLimiter.getClientCount());
+        }
+        return added;
+    }
+}
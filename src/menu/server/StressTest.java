@@ -0,0 +1,226 @@
+package menu.server;
+
+import entities.Event;
+import entities.Hall;
+import entities.SeatStates;
+import entities.Ticket;
+import menu.invoker.Invoker;
+import operations.interfaces.Operation;
+import operations.mainOperations.BookGroup;
+import operations.mainOperations.BookSeat;
+import operations.mainOperations.BuyTicket;
+import utils.Session;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The StressTest class checks that concurrent sales never sell a seat twice.
+ * <p>
+ * It creates an event in one small hall of an {@link Invoker} in process and has the given number of
+ * threads race {@code book}, {@code buy} and {@code bookgroup} commands for random seats of it, so most
+ * commands collide. The operations are called directly, not through the writer that runs the
+ * mutations of an event one at a time in the servers, so the seat states themselves are raced.
+ * Every thread records the seats its commands succeeded for. Afterwards it checks that every
+ * seat was booked by at most one thread and bought by at most one thread, that the state of every seat
+ * is exactly what those threads claimed, that the booked, paid and free counters of every row and of
+ * the hall match the seat states, and that the hall has one ticket for every seat bought. It prints
+ * each violation and exits with status 1 if there is any.
+ * </p>
+ * <p>
+ * Usage: {@code java menu.server.StressTest <threads> <commandsPerThread>}
+ * </p>
+ */
+public class StressTest {
+    private static final String DATE = "2099-07-01 20:00:00";
+    private static final String NAME = "StressTest";
+    private static final String HALL = "Hall-4";
+
+    /**
+     * Runs the stress test.
+     *
+     * @param args the number of threads and the number of commands per thread
+     * @throws InterruptedException if the test is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = Integer.parseInt(args[0]);
+        int commands = Integer.parseInt(args[1]);
+
+        Invoker invoker = new Invoker();
+        invoker.execute("addevent " + DATE + " " + HALL + " " + NAME);
+        Event event = invoker.getEventBooker().getEventByNameAndDate(NAME, LocalDateTime.parse(DATE.replace(' ', 'T')));
+        Hall hall = event.getHall();
+        int capacity = hall.getNUMBER_OF_ROWS() * hall.getNUMBER_OF_SEATS();
+
+        // the thread whose command booked or bought each seat, or -1
+        AtomicIntegerArray bookedBy = new AtomicIntegerArray(capacity);
+        AtomicIntegerArray boughtBy = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            bookedBy.set(i, -1);
+            boughtBy.set(i, -1);
+        }
+        List<String> violations = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    run(invoker, hall, thread, commands, bookedBy, boughtBy, violations);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        check(hall, bookedBy, boughtBy, violations);
+        System.out.printf("%d commands over %d threads in %d ms: %d booked, %d paid, %d free of %d seats%n",
+                (long) threads * commands, threads, elapsed / 1_000_000,
+                hall.getBookedCount(), hall.getPayedCount(), hall.getFreeCount(), capacity);
+        if (violations.isEmpty()) {
+            System.out.println("No seat was sold twice and the counters match the seat states");
+            return;
+        }
+        violations.forEach(System.out::println);
+        System.exit(1);
+    }
+
+    private static void run(Invoker invoker, Hall hall, int thread, int commands, AtomicIntegerArray bookedBy,
+                            AtomicIntegerArray boughtBy, List<String> violations) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Session.bind(new Session(new PrintStream(output, true, StandardCharsets.UTF_8), false, "stress-" + thread));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Operation book = new BookSeat();
+        Operation buy = new BuyTicket();
+        Operation bookGroup = new BookGroup();
+        int capacity = bookedBy.length();
+        try {
+            for (int i = 0; i < commands; i++) {
+                int kind = random.nextInt(10);
+                int seat = random.nextInt(capacity);
+                if (kind < 4) {
+                    String result = process(invoker, book, output, "book " + (seat / hall.getNUMBER_OF_SEATS() + 1)
+                            + " " + hall.getSeatLabel(seat) + " " + DATE + " " + NAME);
+                    // a booking prints nothing when it succeeds
+                    if (result.isEmpty()) {
+                        claim(bookedBy, seat, thread, "booked", hall, violations);
+                    }
+                } else if (kind < 8) {
+                    String result = process(invoker, buy, output, "buy " + (seat / hall.getNUMBER_OF_SEATS() + 1)
+                            + " " + hall.getSeatLabel(seat) + " " + DATE + " " + NAME);
+                    if (result.startsWith("This is your code")) {
+                        claim(boughtBy, seat, thread, "bought", hall, violations);
+                    }
+                } else {
+                    int[] seats = random.ints(0, capacity).distinct().limit(2 + random.nextInt(2)).toArray();
+                    StringBuilder labels = new StringBuilder();
+                    for (int index : seats) {
+                        labels.append(labels.length() == 0 ? "" : ",").append(hall.getSeatLabel(index));
+                    }
+                    String result = process(invoker, bookGroup, output, "bookgroup " + labels + " " + DATE + " " + NAME);
+                    if (result.startsWith("Booked")) {
+                        for (int index : seats) {
+                            claim(bookedBy, index, thread, "booked", hall, violations);
+                        }
+                    }
+                }
+            }
+        } finally {
+            Session.unbind();
+        }
+    }
+
+    /**
+     * Runs an operation on the calling thread and returns what it printed, or the message of the
+     * exception it failed with.
+     */
+    private static String process(Invoker invoker, Operation operation, ByteArrayOutputStream output, String command) {
+        output.reset();
+        try {
+            operation.process(invoker.getEventBooker(), invoker.getHalls(), command.split(" "));
+        } catch (RuntimeException e) {
+            return "Failed: " + e.getMessage();
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void claim(AtomicIntegerArray owners, int seat, int thread, String action, Hall hall,
+                              List<String> violations) {
+        int owner = owners.compareAndExchange(seat, -1, thread);
+        if (owner != -1) {
+            violation(violations, "Seat " + hall.getSeatLabel(seat) + " was " + action + " by threads " + owner
+                    + " and " + thread);
+        }
+    }
+
+    private static void check(Hall hall, AtomicIntegerArray bookedBy, AtomicIntegerArray boughtBy, List<String> violations) {
+        SeatStates states = hall.getSeatStates();
+        int seatsPerRow = hall.getNUMBER_OF_SEATS();
+        int bookedTotal = 0;
+        int payedTotal = 0;
+        int freeTotal = 0;
+        for (int row = 0; row < hall.getNUMBER_OF_ROWS(); row++) {
+            int booked = 0;
+            int payed = 0;
+            int free = 0;
+            for (int index = row * seatsPerRow; index < (row + 1) * seatsPerRow; index++) {
+                if (states.isBooked(index) != (bookedBy.get(index) >= 0)) {
+                    violation(violations, "Seat " + hall.getSeatLabel(index) + " is "
+                            + (states.isBooked(index) ? "booked, but no thread booked it" : "not booked, but a thread booked it"));
+                }
+                if (states.isPayed(index) != (boughtBy.get(index) >= 0)) {
+                    violation(violations, "Seat " + hall.getSeatLabel(index) + " is "
+                            + (states.isPayed(index) ? "paid, but no thread bought it" : "not paid, but a thread bought it"));
+                }
+                booked += states.isBooked(index) ? 1 : 0;
+                payed += states.isPayed(index) ? 1 : 0;
+                free += states.isFree(index) ? 1 : 0;
+            }
+            checkCount(violations, "Booked seats of row " + (row + 1), booked, states.countBookedInRow(row));
+            checkCount(violations, "Paid seats of row " + (row + 1), payed, states.countPayedInRow(row));
+            checkCount(violations, "Free seats of row " + (row + 1), free, states.countFreeInRow(row));
+            bookedTotal += booked;
+            payedTotal += payed;
+            freeTotal += free;
+        }
+        checkCount(violations, "Booked seats of the hall", bookedTotal, states.getBookedCount());
+        checkCount(violations, "Paid seats of the hall", payedTotal, states.getPayedCount());
+        checkCount(violations, "Free seats of the hall", freeTotal, states.getFreeCount());
+
+        boolean[] ticketed = new boolean[bookedBy.length()];
+        for (Ticket ticket : hall.getTickets()) {
+            int index = hall.getSeatIndex(ticket.getSeatNumber());
+            if (ticketed[index]) {
+                violation(violations, "Seat " + ticket.getSeatNumber() + " has more than one ticket");
+            }
+            ticketed[index] = true;
+        }
+        checkCount(violations, "Tickets of the hall", payedTotal, hall.getTickets().size());
+    }
+
+    private static void checkCount(List<String> violations, String what, int seatStates, int counter) {
+        if (seatStates != counter) {
+            violation(violations, what + ": " + seatStates + " by seat state, " + counter + " by counter");
+        }
+    }
+
+    private static void violation(List<String> violations, String violation) {
+        synchronized (violations) {
+            violations.add(violation);
+        }
+    }
+}
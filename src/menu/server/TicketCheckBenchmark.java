@@ -0,0 +1,120 @@
+package menu.server;
+
+import entities.Event;
+import entities.EventBooker;
+import entities.Hall;
+import entities.Ticket;
+import menu.invoker.Invoker;
+import operations.mainOperations.Check;
+import utils.TicketCodeAllocator;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The TicketCheckBenchmark class compares the {@code check} of a ticket code with a scan of every
+ * ticket, as {@code check} used to do, at one million issued tickets.
+ * <p>
+ * It adds ten events in Hall-6 and issues a ticket for each of their 100,000 seats. Then it checks
+ * random codes of issued tickets, and as many codes that were never issued, with {@link Check}, which
+ * decodes the event from the code and looks the code up in the tickets of its hall, and with a scan
+ * of the tickets of every event. It verifies that both agree on every code and prints the time per
+ * code of each, for the given number of rounds; the first rounds warm up the JIT compiler.
+ * </p>
+ * <p>
+ * Usage: {@code java menu.server.TicketCheckBenchmark [rounds]}
+ * </p>
+ */
+public class TicketCheckBenchmark {
+    private static final String HALL = "Hall-6";
+    private static final int EVENTS = 10;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of rounds, 5 by default
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Invoker invoker = new Invoker();
+        EventBooker eventBooker = invoker.getEventBooker();
+        TicketCodeAllocator allocator = eventBooker.getTicketCodeAllocator();
+
+        long begin = System.nanoTime();
+        int issued = 0;
+        String[] codes = new String[EVENTS * invoker.getHalls().getLayoutByName(HALL).getCapacity()];
+        for (int e = 0; e < EVENTS; e++) {
+            Event event = new Event(LocalDateTime.of(2099, 9, 1, 20, 0).plusDays(e), "CheckBenchmark" + e,
+                    invoker.getHalls().createHall(HALL));
+            eventBooker.addEvent(event);
+            Hall hall = event.getHall();
+            for (int seat = 0; seat < hall.getLayout().getCapacity(); seat++) {
+                codes[issued++] = allocator.render(eventBooker.issueTicket(event, hall.getSeatLabel(seat)).getCode());
+            }
+        }
+        System.out.printf("%d tickets issued in %d ms%n", issued, (System.nanoTime() - begin) / 1_000_000);
+
+        Check check = new Check();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int round = 1; round <= rounds; round++) {
+            // every other code is an issued one with its last character changed, so almost never valid
+            String[] sample = new String[200];
+            for (int i = 0; i < sample.length; i++) {
+                String code = codes[random.nextInt(codes.length)];
+                sample[i] = i % 2 == 0 ? code : code.substring(0, code.length() - 1)
+                        + (code.charAt(code.length() - 1) == 'x' ? 'y' : 'x');
+            }
+
+            Event[] indexed = new Event[sample.length];
+            int lookups = 0;
+            begin = System.nanoTime();
+            long deadline = begin + 200_000_000L;
+            do {
+                for (int i = 0; i < sample.length; i++) {
+                    indexed[i] = check(check, eventBooker, sample[i]);
+                }
+                lookups += sample.length;
+            } while (System.nanoTime() < deadline);
+            long indexTime = (System.nanoTime() - begin) / lookups;
+
+            Event[] scanned = new Event[sample.length];
+            begin = System.nanoTime();
+            for (int i = 0; i < sample.length; i++) {
+                scanned[i] = scan(eventBooker, allocator, sample[i]);
+            }
+            long scanTime = (System.nanoTime() - begin) / sample.length;
+
+            for (int i = 0; i < sample.length; i++) {
+                if (indexed[i] != scanned[i]) {
+                    System.out.println("The check and the scan disagree on code " + sample[i]);
+                    System.exit(1);
+                }
+            }
+            System.out.printf("round %d: check %d ns, scan %d ns per code, %dx faster%n",
+                    round, indexTime, scanTime, scanTime / Math.max(1, indexTime));
+        }
+    }
+
+    private static Event check(Check check, EventBooker eventBooker, String code) {
+        try {
+            return check.check(eventBooker, code);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the event of a ticket code the way {@code check} used to: by walking every ticket of every event.
+     */
+    private static Event scan(EventBooker eventBooker, TicketCodeAllocator allocator, String code) {
+        long value = allocator.parse(code);
+        for (Event event : eventBooker.getEvents()) {
+            for (Ticket ticket : event.getHall().getTickets()) {
+                if (ticket.getCode() == value) {
+                    return event;
+                }
+            }
+        }
+        return null;
+    }
+}
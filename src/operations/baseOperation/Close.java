@@ -3,6 +3,7 @@ package operations.baseOperation;
 import entities.EventBooker;
 import entities.Halls;
 import operations.interfaces.Operation;
+import utils.Session;
 
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -22,7 +23,7 @@ public class Close implements Operation {
         } catch (FileNotFoundException e) {
             throw new RuntimeException(e);
         }
-        System.out.println("Closing " + data[1]);
+        Session.out().println("Closing " + data[1]);
         try {
             fileReader.close();
         } catch (IOException e) {
@@ -3,16 +3,22 @@ package operations.baseOperation;
 import entities.EventBooker;
 import entities.Halls;
 import operations.interfaces.Operation;
+import utils.Session;
 
 /**
  * The {@code Exit} class implements the {@code Operation} interface
  * and defines the behavior for exiting the program.
  * This operation outputs a message indicating that the program is exiting.
+ * For a network client only its own connection is closed; the server keeps running.
  */
 public class Exit implements Operation {
     @Override
     public void process(EventBooker eventBooker, Halls halls, String[] data) {
-        System.out.println(
+        Session.out().println(
                 "\nBye...");
+        if (Session.current().isRemote()) {
+            Session.current().close();
+            return;
+        }
         System.exit(0);    }
 }
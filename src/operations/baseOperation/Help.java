@@ -3,6 +3,7 @@ package operations.baseOperation;
 import entities.EventBooker;
 import entities.Halls;
 import operations.interfaces.Operation;
+import utils.Session;
 
 /**
  * The {@code Help} class implements the {@code Operation} interface
@@ -25,13 +26,19 @@ public class Help implements Operation {
                         "book\t\t>\tbook <row> <seat> on <date> for <name> with <note>\n" +
                         "unbook\t\t>\tunbook <row> <seat> on <date> for <name>\n" +
                         "buy\t\t>\tbuy <row> <seat> on <date> for <name>\n" +
+                        "\t\t\tbuy hold <id> to buy a held seat\n" +
+                        "bookgroup\t>\tbook <seat>,<seat>,... on <date> for <name> with <note>, all or none\n" +
+                        "buygroup\t>\tbuy <seat>,<seat>,... on <date> for <name>, all or none\n" +
+                        "bookbest\t>\tbook best <count> adjacent seats on <date> for <name> with <note>\n" +
+                        "hold\t\t>\thold for <minutes> <seat> on <date> for <name>\n" +
                         "bookings\t>\tsee bookings for [<name>] [<date>]\n" +
                         "check\t\t>\tcheck <code> validity\n" +
                         "report\t\t>\tsee purchases for events <from> <to> in [<hall>]\n" +
                         "mostfamous\t>\tsee best selling events\n" +
-                        "statistic\t>\tsee worst selling events\n" +
+                        "statistic\t>\tsee worst selling events, [yes|no] to answer for all of them\n" +
+                        "releases\t>\tsee unpaid bookings released before their events\n" +
                         "\t___________________________________\n" +
                         "exit\t\t>\texit the program";
-        System.out.println(builder);
+        Session.out().println(builder);
     }
 }
@@ -2,24 +2,32 @@ package operations.baseOperation;
 
 import entities.Event;
 import entities.EventBooker;
-import entities.Hall;
 import entities.Halls;
 import exceptions.FileException;
 import operations.interfaces.Operation;
+import utils.Session;
+import utils.SnapshotFile;
 
+import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * The `Open` class is responsible for processing the "open" operation.
  * This operation reads event data from a specified file and populates the `EventBooker` with events.
  * The data loaded includes event names, event dates, and the halls where the events are held.
+ * Files written by {@link Save} are in the binary format of {@link SnapshotFile} and also restore
+ * the seats, notes and tickets; files in the older text format, which only lists the events, are
+ * still read. The format is told apart by the magic number at the start of the file.
  */
 public class Open implements Operation {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     /**
      * Processes the "open" operation. This method reads the file specified by the user,
@@ -34,26 +42,74 @@ public class Open implements Operation {
     @Override
     public void process(EventBooker eventBooker, Halls halls, String[] data) {
         // data[1] = filePath
-        try (FileReader fileReader = new FileReader(data[1])) {
-            Scanner scanner = new Scanner(fileReader);
-            while (scanner.hasNextLine()) {
-                String eventName = scanner.nextLine();
+        try {
+            Path path = Path.of(data[1]);
+            if (SnapshotFile.isSnapshot(path)) {
+                openSnapshot(eventBooker, halls, path);
+            } else {
+                openText(eventBooker, halls, data[1]);
+            }
+        } catch (IOException e) {
+            throw new FileException("Something went wrong with opening the file");
+        }
+        Session.out().println("Opened.");
+    }
+
+    /**
+     * Reads a snapshot file and adds its events, keeping their ids, since their ticket codes encode them.
+     * Nothing is added if the file is damaged or one of its ids is taken by an event that is already open.
+     *
+     * @param eventBooker The `EventBooker` object that stores the events.
+     * @param halls The `Halls` object that provides information about available halls.
+     * @param path The path of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private void openSnapshot(EventBooker eventBooker, Halls halls, Path path) throws IOException {
+        List<Event> events = SnapshotFile.read(path, halls);
+        Set<Long> ids = new HashSet<>();
+        for (Event event : eventBooker.getEvents()) {
+            ids.add(event.getId());
+        }
+        for (Event event : events) {
+            if (ids.contains(event.getId())) {
+                throw new FileException("The events of the file clash with the events already open");
+            }
+        }
+        for (Event event : events) {
+            eventBooker.addEvent(event);
+        }
+        // the journal only records the events, not their restored seats and tickets, so they are only
+        // safe from a crash once a checkpoint holds them
+        try {
+            eventBooker.getJournal().checkpoint();
+        } catch (IOException e) {
+            throw new FileException("The file was opened, but its seats could not be checkpointed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a file in the text format, which lists the name, date and hall of each event.
+     *
+     * @param eventBooker The `EventBooker` object that stores the events.
+     * @param halls The `Halls` object that provides information about available halls.
+     * @param filePath The path of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private void openText(EventBooker eventBooker, Halls halls, String filePath) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String eventName;
+            while ((eventName = reader.readLine()) != null) {
                 if (eventName.isEmpty() || eventName.isBlank()) {
                     continue;
                 }
-                String date = scanner.nextLine();
+                String date = reader.readLine();
                 LocalDateTime localDateTime = convertTime(date);
-                // Hall info
-                String hallNumber = scanner.nextLine();
-                Hall hallByName = halls.getHallByName(hallNumber);
-                Hall newHall = manualClone(hallByName);  // Clone the hall to avoid modifying the original
-                Event event = new Event(localDateTime, eventName, newHall);
+                // Hall info; the hall's seats are only materialized once the event is used
+                String hallNumber = reader.readLine();
+                Event event = new Event(localDateTime, eventName, halls.createHall(hallNumber));
                 eventBooker.addEvent(event);
             }
-        } catch (IOException e) {
-            throw new FileException("Something went wrong with opening the file");
         }
-        System.out.println("Opened.");
     }
 
     /**
@@ -64,20 +120,6 @@ public class Open implements Operation {
      */
     private LocalDateTime convertTime(String date) {
         // date = "yyyy-MM-dd HH:mm:ss"
-        return LocalDateTime.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-    }
-
-    /**
-     * Manually clones a `Hall` object to create a new instance with the same properties,
-     * but with an empty ticket list.
-     *
-     * @param hall The `Hall` object to be cloned.
-     * @return A new `Hall` object with the same number, number of rows, and full status as the original,
-     * but with an empty ticket list.
-     */
-    private Hall manualClone(Hall hall) {
-        Hall hallCloned = new Hall(hall.getNumber(), hall.getNUMBER_OF_ROWS(), hall.isFull());
-        hallCloned.setTickets(new ArrayList<>());  // Initialize with an empty ticket list
-        return hallCloned;
+        return LocalDateTime.parse(date, DATE_FORMAT);
     }
 }
@@ -21,4 +21,17 @@ public interface Operation {
      * @param data an array of {@code String} containing the data required for the operation
      */
     void process(EventBooker eventBooker, Halls halls, String[] data);
+
+    /**
+     * Returns the routing key of the single event the operation changes, so the operation can run on
+     * the writer shard of that event. Operations that change several events, or read only, return
+     * {@code null}.
+     *
+     * @param eventBooker the {@code EventBooker} instance the operation will run with
+     * @param data an array of {@code String} containing the data required for the operation
+     * @return the routing key, or {@code null}
+     */
+    default String getRoutingKey(EventBooker eventBooker, String[] data) {
+        return null;
+    }
 }
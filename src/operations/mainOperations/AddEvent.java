@@ -3,18 +3,18 @@ package operations.mainOperations;
 import entities.*;
 import exceptions.EventException;
 import operations.interfaces.Operation;
+import utils.ShardedWriter;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 
 /**
  * The {@code AddEvent} class implements the {@code Operation} interface and
  * handles the addition of a new event to the {@code EventBooker}.
  * <p>
  * This operation parses the provided data to create and add a new {@code Event}
- * to the {@code EventBooker}. It checks for duplicate events and clones the hall
- * information to ensure isolation.
+ * to the {@code EventBooker}. It checks for duplicate events and gives the event its own
+ * occupancy state on top of the hall's shared layout.
  * </p>
  */
 public class AddEvent implements Operation {
@@ -42,16 +42,26 @@ public class AddEvent implements Operation {
         LocalDateTime date = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
         String eventName = getEventName(data).toString();
 
-        Hall hallByName = halls.getHallByName(data[3]);
-        Hall newHall = manualClone(hallByName);
-        Event event = new Event(date, eventName, newHall);
+        Event event = new Event(date, eventName, halls.createHall(data[3]));
 
-        for (Event eventBookerEvent : eventBooker.getEvents()) {
-            if (eventBookerEvent.getName().equals(eventName)) {
-                throw new EventException("Event already exists");
-            }
+        if (!eventBooker.addEventIfNameAbsent(event)) {
+            throw new EventException("Event already exists");
         }
-        eventBooker.addEvent(event);
+    }
+
+    /**
+     * Returns the routing key of the event the {@code addevent} command changes.
+     *
+     * @param eventBooker the {@code EventBooker} instance
+     * @param data the parts of the command line
+     * @return the date and name of the event, or {@code null} if the command is incomplete
+     */
+    @Override
+    public String getRoutingKey(EventBooker eventBooker, String[] data) {
+        if (data.length < 5) {
+            return null;
+        }
+        return ShardedWriter.routingKey(data[1] + " " + data[2], getEventName(data).toString());
     }
 
     /**
@@ -71,21 +81,4 @@ public class AddEvent implements Operation {
         stringBuilder.append(data[data.length - 1]);
         return stringBuilder;
     }
-
-    /**
-     * Creates a manual clone of the specified {@code Hall}.
-     * <p>
-     * Initializes a new {@code Hall} object with the same properties as the provided hall
-     * and sets an empty list for tickets.
-     * </p>
-     *
-     * @param hall the {@code Hall} to be cloned
-     * @return a new {@code Hall} instance that is a clone of the provided hall
-     */
-    private Hall manualClone(Hall hall) {
-        Hall hallCloned = new Hall(hall.getNumber(), hall.getNUMBER_OF_ROWS(), hall.isFull());
-        hallCloned.setTickets(new ArrayList<>());
-        return hallCloned;
-    }
 }
-
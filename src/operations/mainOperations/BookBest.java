@@ -0,0 +1,123 @@
+package operations.mainOperations;
+
+import entities.Event;
+import entities.EventBooker;
+import entities.Hall;
+import entities.Halls;
+import operations.interfaces.Operation;
+import utils.Session;
+import utils.ShardedWriter;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The `BookBest` class implements the `Operation` interface and books the best available block
+ * of adjacent seats for an event: the block on one row whose middle is closest to the middle of the hall.
+ * The block is booked atomically.
+ */
+public class BookBest implements Operation {
+
+    /**
+     * Processes the "bookbest" operation, e.g. {@code bookbest 4 2024-02-01 14:10:20 az "family"}.
+     * <p>
+     * The data array is expected to contain the following elements:
+     * <ul>
+     *     <li>[0] - Command (bookbest)</li>
+     *     <li>[1] - Number of adjacent seats</li>
+     *     <li>[2] - Event date (yyyy-MM-dd)</li>
+     *     <li>[3] - Event time (HH:mm:ss)</li>
+     *     <li>[4+] - Event name, followed by an optional note in quotes</li>
+     * </ul>
+     * </p>
+     *
+     * @param eventBooker The `EventBooker` object that manages the events.
+     * @param halls The `Halls` object that provides information about available halls.
+     * @param data The user input data, including the number of seats, the event date, time and name and the optional note.
+     */
+    @Override
+    public void process(EventBooker eventBooker, Halls halls, String[] data) {
+        if (data.length < 5) {
+            throw new IllegalArgumentException("Invalid number of arguments. Enter at least 5.");
+        }
+
+        int count = Integer.parseInt(data[1]);
+        String time = data[2] + " " + data[3];
+        String eventName = getEventName(data).toString();
+        LocalDateTime date = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+
+        Event event = eventBooker.getEventByNameAndDate(eventName, date);
+        eventBooker.getBookingDeadlines().checkOpen(event);
+        Hall hall = event.getHall();
+        String note = getNote(data).toString();
+        int start = hall.getSeatStates().bookBestBlock(count, note);
+        if (start < 0) {
+            Session.out().println("There are no " + count + " adjacent free seats.");
+            return;
+        }
+        int[] block = new int[count];
+        for (int i = 0; i < count; i++) {
+            block[i] = start + i;
+        }
+        eventBooker.getJournal().book(event.getId(), note, block);
+
+        StringBuilder seats = new StringBuilder(hall.getSeatLabel(start));
+        for (int i = 1; i < count; i++) {
+            seats.append(",").append(hall.getSeatLabel(start + i));
+        }
+        Session.out().println("Booked seats " + seats);
+    }
+
+    /**
+     * Returns the routing key of the event the {@code bookbest} command changes.
+     *
+     * @param eventBooker the {@code EventBooker} instance
+     * @param data the parts of the command line
+     * @return the date and name of the event, or {@code null} if the command is incomplete
+     */
+    @Override
+    public String getRoutingKey(EventBooker eventBooker, String[] data) {
+        if (data.length < 5) {
+            return null;
+        }
+        return ShardedWriter.routingKey(data[2] + " " + data[3], getEventName(data).toString());
+    }
+
+    /**
+     * Extracts the note from the user input data: everything from the first quoted word on.
+     *
+     * @param data The user input data array.
+     * @return A `StringBuilder` containing the extracted note, empty if there is none.
+     */
+    private StringBuilder getNote(String[] data) {
+        StringBuilder note = new StringBuilder();
+        for (int i = 4; i < data.length; i++) {
+            if (note.length() > 0) {
+                note.append(" ").append(data[i]);
+            } else if (data[i].charAt(0) == '\"') {
+                note.append(data[i]);
+            }
+        }
+        return note;
+    }
+
+    /**
+     * Extracts the event name from the user input data: every word before the note.
+     *
+     * @param data The user input data array.
+     * @return A `StringBuilder` containing the extracted event name.
+     */
+    private StringBuilder getEventName(String[] data) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 4; i < data.length; i++) {
+            if (data[i].charAt(0) == '\"') {
+                break;
+            }
+            stringBuilder.append(data[i]).append(" ");
+        }
+        if (stringBuilder.length() > 0) {
+            stringBuilder.delete(stringBuilder.length() - 1, stringBuilder.length());
+        }
+        return stringBuilder;
+    }
+}
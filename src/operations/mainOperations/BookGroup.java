@@ -0,0 +1,129 @@
+package operations.mainOperations;
+
+import entities.Event;
+import entities.EventBooker;
+import entities.Hall;
+import entities.Halls;
+import operations.interfaces.Operation;
+import utils.Session;
+import utils.ShardedWriter;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The `BookGroup` class implements the `Operation` interface and books several seats of one event at once.
+ * Either all the seats are booked or, if any of them is not free, none of them is.
+ */
+public class BookGroup implements Operation {
+
+    /**
+     * Processes the "bookgroup" operation, e.g. {@code bookgroup 1A,1B,2C 2024-02-01 14:10:20 az "family"}.
+     * <p>
+     * The data array is expected to contain the following elements:
+     * <ul>
+     *     <li>[0] - Command (bookgroup)</li>
+     *     <li>[1] - Comma separated seat numbers</li>
+     *     <li>[2] - Event date (yyyy-MM-dd)</li>
+     *     <li>[3] - Event time (HH:mm:ss)</li>
+     *     <li>[4+] - Event name, followed by an optional note in quotes</li>
+     * </ul>
+     * </p>
+     *
+     * @param eventBooker The `EventBooker` object that manages the events.
+     * @param halls The `Halls` object that provides information about available halls.
+     * @param data The user input data, including the seat numbers, the event date, time and name and the optional note.
+     */
+    @Override
+    public void process(EventBooker eventBooker, Halls halls, String[] data) {
+        if (data.length < 5) {
+            throw new IllegalArgumentException("Invalid number of arguments. Enter at least 5.");
+        }
+
+        String time = data[2] + " " + data[3];
+        String eventName = getEventName(data).toString();
+        LocalDateTime date = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+
+        Event event = eventBooker.getEventByNameAndDate(eventName, date);
+        eventBooker.getBookingDeadlines().checkOpen(event);
+        Hall hall = event.getHall();
+        String[] seatNumbers = data[1].split(",");
+        int[] seatIndexes = getSeatIndexes(hall, seatNumbers);
+        String note = getNote(data).toString();
+        int conflict = hall.getSeatStates().bookAll(seatIndexes, note);
+        if (conflict >= 0) {
+            Session.out().println("The seat " + hall.getSeatLabel(conflict) + " is already booked. No seats were booked.");
+        } else {
+            eventBooker.getJournal().book(event.getId(), note, seatIndexes);
+            Session.out().println("Booked " + seatIndexes.length + " seats.");
+        }
+    }
+
+    /**
+     * Returns the routing key of the event the {@code bookgroup} command changes.
+     *
+     * @param eventBooker the {@code EventBooker} instance
+     * @param data the parts of the command line
+     * @return the date and name of the event, or {@code null} if the command is incomplete
+     */
+    @Override
+    public String getRoutingKey(EventBooker eventBooker, String[] data) {
+        if (data.length < 5) {
+            return null;
+        }
+        return ShardedWriter.routingKey(data[2] + " " + data[3], getEventName(data).toString());
+    }
+
+    /**
+     * Resolves seat numbers to seat indexes in the given hall.
+     *
+     * @param hall        The hall of the event.
+     * @param seatNumbers The seat numbers, e.g. "3A".
+     * @return The seat indexes, in the same order.
+     */
+    static int[] getSeatIndexes(Hall hall, String[] seatNumbers) {
+        int[] seatIndexes = new int[seatNumbers.length];
+        for (int i = 0; i < seatNumbers.length; i++) {
+            seatIndexes[i] = hall.getSeatIndex(seatNumbers[i]);
+        }
+        return seatIndexes;
+    }
+
+    /**
+     * Extracts the note from the user input data: everything from the first quoted word on.
+     *
+     * @param data The user input data array.
+     * @return A `StringBuilder` containing the extracted note, empty if there is none.
+     */
+    private StringBuilder getNote(String[] data) {
+        StringBuilder note = new StringBuilder();
+        for (int i = 4; i < data.length; i++) {
+            if (note.length() > 0) {
+                note.append(" ").append(data[i]);
+            } else if (data[i].charAt(0) == '\"') {
+                note.append(data[i]);
+            }
+        }
+        return note;
+    }
+
+    /**
+     * Extracts the event name from the user input data: every word before the note.
+     *
+     * @param data The user input data array.
+     * @return A `StringBuilder` containing the extracted event name.
+     */
+    private StringBuilder getEventName(String[] data) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 4; i < data.length; i++) {
+            if (data[i].charAt(0) == '\"') {
+                break;
+            }
+            stringBuilder.append(data[i]).append(" ");
+        }
+        if (stringBuilder.length() > 0) {
+            stringBuilder.delete(stringBuilder.length() - 1, stringBuilder.length());
+        }
+        return stringBuilder;
+    }
+}
@@ -1,8 +1,12 @@
 package operations.mainOperations;
 
+import entities.Event;
 import entities.EventBooker;
+import entities.Hall;
 import entities.Halls;
 import operations.interfaces.Operation;
+import utils.Session;
+import utils.ShardedWriter;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -32,26 +36,49 @@ public class BookSeat implements Operation {
         LocalDateTime date = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
         StringBuilder note = getNote(data);
 
-        if (!eventBooker
-                .getEventByNameAndDate(eventName, date)
-                .getHall()
-                .getRows()
-                .get(Integer.parseInt(data[1]) - 1)
-                .getSeatByNumber(data[2])
-                .isBooked()) {
-            eventBooker
-                    .getEventByNameAndDate(eventName, date)
-                    .getHall()
-                    .getRows()
-                    .get(Integer.parseInt(data[1]) - 1)
-                    .getSeatByNumber(data[2])
-                    .setNote(note.toString())
-                    .setBooked(true);
-        } else {
-            System.out.println("The seat is already booked.");
+        if (!book(eventBooker, eventName, date, Integer.parseInt(data[1]), data[2], note.toString())) {
+            Session.out().println("The seat is already booked.");
         }
     }
 
+    /**
+     * Returns the routing key of the event the {@code book} command changes.
+     *
+     * @param eventBooker the {@code EventBooker} instance
+     * @param data the parts of the command line
+     * @return the date and name of the event, or {@code null} if the command is incomplete
+     */
+    @Override
+    public String getRoutingKey(EventBooker eventBooker, String[] data) {
+        if (data.length < 6) {
+            return null;
+        }
+        return ShardedWriter.routingKey(data[3] + " " + data[4], getEventName(data).toString());
+    }
+
+    /**
+     * Books a seat for an event, if the seat is free.
+     *
+     * @param eventBooker The `EventBooker` object that manages the events.
+     * @param eventName The name of the event.
+     * @param date The date of the event.
+     * @param row The one-based row number.
+     * @param seatNumber The seat number, e.g. "3A".
+     * @param note The note of the booking.
+     * @return True if the seat was booked, false if it was not free.
+     */
+    public boolean book(EventBooker eventBooker, String eventName, LocalDateTime date, int row, String seatNumber, String note) {
+        Event event = eventBooker.getEventByNameAndDate(eventName, date);
+        eventBooker.getBookingDeadlines().checkOpen(event);
+        Hall hall = event.getHall();
+        int seatIndex = hall.getSeatIndex(row, seatNumber);
+        if (!hall.getSeatStates().book(seatIndex, note)) {
+            return false;
+        }
+        eventBooker.getJournal().book(event.getId(), note, seatIndex);
+        return true;
+    }
+
 
     /**
      * Extracts the note from the user input data.
@@ -2,6 +2,7 @@ package operations.mainOperations;
 
 import entities.*;
 import operations.interfaces.Operation;
+import utils.Session;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -35,13 +36,10 @@ public class Booking implements Operation {
         if (data.length == 1) {
             // Only "bookings" - list all bookings for all events
             for (Event event : eventBooker.getEvents()) {
-                for (Row row : event.getHall().getRows()) {
-                    for (Seat seat : row.getSeats()) {
-                        if (seat.isBooked()) {
-                            System.out.println(event);
-                            System.out.println("With note: " + seat.getNote());
-                        }
-                    }
+                HallSnapshot hall = eventBooker.snapshot(event);
+                for (int i = hall.nextBooked(0); i >= 0; i = hall.nextBooked(i + 1)) {
+                    Session.out().println(event);
+                    Session.out().println("With note: " + hall.getNote(i));
                 }
             }
         } else if (data.length == 2) {
@@ -70,6 +68,25 @@ public class Booking implements Operation {
         }
     }
 
+    /**
+     * Finds the events whose bookings are listed, by name, by date, by both or, if neither is given, all of them.
+     *
+     * @param eventBooker The `EventBooker` object that stores and manages events.
+     * @param name        The event name, or null.
+     * @param date        The event date, or null.
+     * @return The matching events.
+     */
+    public List<Event> findEvents(EventBooker eventBooker, String name, LocalDateTime date) {
+        if (name != null && date != null) {
+            return List.of(eventBooker.getEventByNameAndDate(name, date));
+        } else if (name != null) {
+            return eventBooker.getEventByName(name);
+        } else if (date != null) {
+            return eventBooker.getEventByDate(date);
+        }
+        return eventBooker.getEvents();
+    }
+
     /**
      * Constructs an event name from the provided input data.
      * <p>
@@ -0,0 +1,98 @@
+package operations.mainOperations;
+
+import entities.Event;
+import entities.EventBooker;
+import entities.Hall;
+import entities.Halls;
+import entities.Ticket;
+import operations.interfaces.Operation;
+import utils.Session;
+import utils.ShardedWriter;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The {@code BuyGroup} class implements the {@code Operation} interface and
+ * buys tickets for several seats of one event at once.
+ * <p>
+ * Either all the seats are paid for and a ticket is issued for each of them or,
+ * if any of them is already bought, none of them is.
+ * </p>
+ */
+public class BuyGroup implements Operation {
+
+    /**
+     * Processes the purchase of tickets for a group of seats, e.g. {@code buygroup 1A,1B,2C 2024-02-01 14:10:20 az}.
+     * <p>
+     * The data array is expected to contain the following elements:
+     * <ul>
+     *     <li>[0] - Command (buygroup)</li>
+     *     <li>[1] - Comma separated seat numbers</li>
+     *     <li>[2] - Event date (yyyy-MM-dd)</li>
+     *     <li>[3] - Event time (HH:mm:ss)</li>
+     *     <li>[4+] - Event name</li>
+     * </ul>
+     * </p>
+     *
+     * @param eventBooker the {@code EventBooker} instance used to retrieve event and booking information
+     * @param halls the {@code Halls} instance used to retrieve hall information (not used in this method)
+     * @param data an array of {@code String} containing the purchase details
+     */
+    @Override
+    public void process(EventBooker eventBooker, Halls halls, String[] data) {
+        if (data.length < 5) {
+            throw new IllegalArgumentException("Invalid number of arguments. Enter at least 5.");
+        }
+
+        String time = data[2] + " " + data[3];
+        String name = getEventName(data).toString();
+        LocalDateTime date = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+
+        Event event = eventBooker.getEventByNameAndDate(name, date);
+        Hall hall = event.getHall();
+        String[] seatNumbers = data[1].split(",");
+        int[] seatIndexes = BookGroup.getSeatIndexes(hall, seatNumbers);
+        int conflict = hall.getSeatStates().payAll(seatIndexes);
+        if (conflict >= 0) {
+            Session.out().println("The seat " + hall.getSeatLabel(conflict) + " is already bought. No tickets were bought.");
+            return;
+        }
+
+        for (String seatNumber : seatNumbers) {
+            Ticket ticket = eventBooker.issueTicket(event, seatNumber);
+            Session.out().println(seatNumber + ": "
+                    + eventBooker.getTicketCodeAllocator().render(ticket.getCode()));
+        }
+    }
+
+    /**
+     * Returns the routing key of the event the {@code buygroup} command changes.
+     *
+     * @param eventBooker the {@code EventBooker} instance
+     * @param data the parts of the command line
+     * @return the date and name of the event, or {@code null} if the command is incomplete
+     */
+    @Override
+    public String getRoutingKey(EventBooker eventBooker, String[] data) {
+        if (data.length < 5) {
+            return null;
+        }
+        return ShardedWriter.routingKey(data[2] + " " + data[3], getEventName(data).toString());
+    }
+
+    /**
+     * Constructs the event name from the provided data array.
+     *
+     * @param data an array of {@code String} containing the command and its parameters
+     * @return a {@code StringBuilder} containing the concatenated event name
+     */
+    private StringBuilder getEventName(String[] data) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 4; i < data.length - 1; i++) {
+            stringBuilder.append(data[i]).append(' ');
+        }
+        stringBuilder.append(data[data.length - 1]);
+        return stringBuilder;
+    }
+}
@@ -2,9 +2,15 @@ package operations.mainOperations;
 
 import entities.Event;
 import entities.EventBooker;
+import entities.Hall;
 import entities.Halls;
+import entities.SeatHold;
+import entities.SeatStates;
 import entities.Ticket;
+import exceptions.TicketException;
 import operations.interfaces.Operation;
+import utils.Session;
+import utils.ShardedWriter;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -32,6 +38,7 @@ public class BuyTicket implements Operation {
      *     <li>[5] - Event name</li>
      *     <li>[6+] - Optional note (not used in this method)</li>
      * </ul>
+     * A held seat is bought with {@code buy hold <id>} instead, using the id printed by the {@code hold} command.
      * </p>
      *
      * @param eventBooker the {@code EventBooker} instance used to retrieve event and booking information
@@ -48,34 +55,88 @@ public class BuyTicket implements Operation {
     @Override
     public void process(EventBooker eventBooker, Halls halls, String[] data) {
         //buy 2 3A 2024-02-01 14:10:20 az
+        if (data.length == 3 && data[1].equals("hold")) {
+            buyHeldSeat(eventBooker, Long.parseLong(data[2]));
+            return;
+        }
+
         String time = data[3] + " " + data[4];
         StringBuilder stringBuilder = getEventName(data);
         String name = stringBuilder.toString();
         LocalDateTime date = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
 
-        if (!eventBooker.getEventByNameAndDate(name, date).getHall().isFull()) {
-            // not full, add the ticket to the list of sold tickets
-            eventBooker
-                    .getEventByNameAndDate(name, date)
-                    .getHall()
-                    .getRows()
-                    .get(Integer.parseInt(data[1]) - 1)
-                    .getSeatByNumber(data[2])
-                    .setPayed(true);
+        Ticket ticket = buy(eventBooker, name, date, Integer.parseInt(data[1]), data[2]);
+
+        Session.out().println("This is your code: "
+                + eventBooker.getTicketCodeAllocator().render(ticket.getCode()));
+    }
 
-            Ticket ticket = eventBooker.getEventByNameAndDate(name, date)
-                    .getHall()
-                    .addTicket(new Ticket(data[2]));
+    /**
+     * Returns the routing key of the event the {@code buy} command changes.
+     *
+     * @param eventBooker the {@code EventBooker} instance
+     * @param data the parts of the command line
+     * @return the date and name of the event, or {@code null} if the command is incomplete
+     */
+    @Override
+    public String getRoutingKey(EventBooker eventBooker, String[] data) {
+        if (data.length == 3 && data[1].equals("hold")) {
+            SeatHold hold = eventBooker.getHold(Long.parseLong(data[2]));
+            if (hold == null) {
+                return null;
+            }
+            Event event = hold.getEvent();
+            return ShardedWriter.routingKey(event.getDate().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
+                    event.getName());
+        }
+        if (data.length < 6) {
+            return null;
+        }
+        return ShardedWriter.routingKey(data[3] + " " + data[4], getEventName(data).toString());
+    }
 
-            System.out.println("This is your code: " + ticket.getCode());
-            Event event = eventBooker.getEventByNameAndDate(name, date);
-            int size = event.getHall().getTickets().size();
-            if (size == event.getHall().getMaxAmountOfTickets()) {
-                event.getHall().setFull(true);
+    /**
+     * Buys a ticket for a seat of an event.
+     *
+     * @param eventBooker the {@code EventBooker} instance used to retrieve the event and issue the ticket
+     * @param name the name of the event
+     * @param date the date of the event
+     * @param row the one-based row number
+     * @param seatNumber the seat number, e.g. "3A"
+     * @return the issued {@code Ticket}
+     * @throws TicketException if the event is full or the seat is already bought or held
+     */
+    public Ticket buy(EventBooker eventBooker, String name, LocalDateTime date, int row, String seatNumber) {
+        Event event = eventBooker.getEventByNameAndDate(name, date);
+        Hall hall = event.getHall();
+        if (hall.isFull()) {
+            throw new TicketException("The current event is full");
+        }
+        // not full, add the ticket to the list of sold tickets
+        int seatIndex = hall.getSeatIndex(row, seatNumber);
+        if (!hall.getSeatStates().pay(seatIndex)) {
+            if (hall.getSeatStates().getState(seatIndex) == SeatStates.HELD) {
+                throw new TicketException("The seat is held.");
             }
-        } else {
-            System.out.println("The current event is full");
+            throw new TicketException("The seat is already bought.");
+        }
+        return eventBooker.issueTicket(event, seatNumber);
+    }
+
+    /**
+     * Buys the seat of an active hold. The hold is converted atomically, so it cannot expire halfway.
+     *
+     * @param eventBooker the {@code EventBooker} instance that owns the hold
+     * @param holdId the id of the hold
+     */
+    private void buyHeldSeat(EventBooker eventBooker, long holdId) {
+        Ticket ticket = eventBooker.buyHeldSeat(holdId);
+        if (ticket == null) {
+            Session.out().println("There is no such hold or it has expired.");
+            return;
         }
+        Session.out().println("This is your code: "
+                + eventBooker.getTicketCodeAllocator().render(ticket.getCode()));
     }
 
     /**
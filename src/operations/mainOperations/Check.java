@@ -3,16 +3,16 @@ package operations.mainOperations;
 import entities.Event;
 import entities.EventBooker;
 import entities.Halls;
-import entities.Ticket;
 import exceptions.TicketException;
 import operations.interfaces.Operation;
+import utils.Session;
 
 /**
  * The {@code Check} class implements the {@code Operation} interface and
  * handles the validation of ticket codes.
  * <p>
- * This operation verifies if a ticket code is valid by checking if it exists
- * in the list of tickets for any event. If valid, it prints the event details;
+ * This operation verifies if a ticket code is valid by decoding the event it was issued for
+ * and looking the code up in that event's hall. If valid, it prints the event details;
  * otherwise, it throws a {@code TicketException}.
  * </p>
  */
@@ -37,15 +37,24 @@ public class Check implements Operation {
      */
     @Override
     public void process(EventBooker eventBooker, Halls halls, String[] data) {
-        for (Event event : eventBooker.getEvents()) {
-            for (Ticket ticket : event.getHall().getTickets()) {
-                if (ticket.getCode().equals(data[1])) {
-                    System.out.println("Valid code");
-                    System.out.println(event);
-                    return;
-                }
-            }
+        Event event = check(eventBooker, data[1]);
+        Session.out().println("Valid code");
+        Session.out().println(event);
+    }
+
+    /**
+     * Validates a ticket code.
+     *
+     * @param eventBooker the {@code EventBooker} instance used to retrieve event and ticket information
+     * @param code the printed ticket code
+     * @return the event the ticket is valid for
+     * @throws TicketException if the ticket code is invalid
+     */
+    public Event check(EventBooker eventBooker, String code) {
+        Event event = eventBooker.getEventByTicketCode(code);
+        if (event == null) {
+            throw new TicketException("Invalid code");
         }
-        throw new TicketException("Invalid code");
+        return event;
     }
 }
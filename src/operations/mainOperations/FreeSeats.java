@@ -2,6 +2,7 @@ package operations.mainOperations;
 
 import entities.*;
 import operations.interfaces.Operation;
+import utils.Session;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -42,18 +43,33 @@ public class FreeSeats implements Operation {
         String time = data[1] + " " + data[2];
         String eventName = getEventName(data).toString();
         LocalDateTime date = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        Event event = eventBooker.getEventByNameAndDate(eventName, date);
-        for (int i = 0; i < event.getHall().getRows().size(); i++) {
-            System.out.printf("Row %d has ", i + 1);
-            int unbooked = 0, unpurchased = 0;
-            for (Seat seat : event.getHall().getRows().get(i).getSeats()) {
-                if (!seat.isBooked()) unbooked++;
-                if (!seat.isPayed()) unpurchased++;
-            }
-            System.out.printf("%d unbooked and %d unpurchased tickets%n", unbooked, unpurchased);
+        int[][] freeSeats = freeSeats(eventBooker, eventName, date);
+        for (int i = 0; i < freeSeats.length; i++) {
+            Session.out().printf("Row %d has ", i + 1);
+            Session.out().printf("%d unbooked and %d unpurchased tickets%n", freeSeats[i][0], freeSeats[i][1]);
         }
     }
 
+    /**
+     * Counts the unbooked and unpurchased seats of every row of an event's hall.
+     *
+     * @param eventBooker the {@code EventBooker} instance used to retrieve the event
+     * @param eventName the name of the event
+     * @param date the date of the event
+     * @return one entry per row holding the number of unbooked seats and the number of unpurchased seats
+     */
+    public int[][] freeSeats(EventBooker eventBooker, String eventName, LocalDateTime date) {
+        Hall hall = eventBooker.getEventByNameAndDate(eventName, date).getHall();
+        SeatStates seatStates = hall.getSeatStates();
+        int[][] freeSeats = new int[hall.getNUMBER_OF_ROWS()][];
+        for (int i = 0; i < freeSeats.length; i++) {
+            int unbooked = hall.getNUMBER_OF_SEATS() - seatStates.countBookedInRow(i);
+            int unpurchased = hall.getNUMBER_OF_SEATS() - seatStates.countPayedInRow(i);
+            freeSeats[i] = new int[]{unbooked, unpurchased};
+        }
+        return freeSeats;
+    }
+
     /**
      * Extracts the event name from the provided data array.
      * <p>
@@ -0,0 +1,89 @@
+package operations.mainOperations;
+
+import entities.Event;
+import entities.EventBooker;
+import entities.Hall;
+import entities.Halls;
+import entities.SeatHold;
+import operations.interfaces.Operation;
+import utils.Session;
+import utils.ShardedWriter;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The `HoldSeat` class implements the `Operation` interface and holds a free seat for a limited time.
+ * The seat is released automatically when the time is up, unless it is bought with {@code buy hold <id>} first.
+ */
+public class HoldSeat implements Operation {
+
+    /**
+     * Processes the "hold" operation, e.g. {@code hold 10 3A 2024-02-01 14:10:20 az}.
+     * <p>
+     * The data array is expected to contain the following elements:
+     * <ul>
+     *     <li>[0] - Command (hold)</li>
+     *     <li>[1] - Number of minutes to hold the seat for</li>
+     *     <li>[2] - Seat number</li>
+     *     <li>[3] - Event date (yyyy-MM-dd)</li>
+     *     <li>[4] - Event time (HH:mm:ss)</li>
+     *     <li>[5+] - Event name</li>
+     * </ul>
+     * </p>
+     *
+     * @param eventBooker The `EventBooker` object that manages the events.
+     * @param halls The `Halls` object that provides information about available halls.
+     * @param data The user input data, including the minutes, the seat number and the event date, time and name.
+     */
+    @Override
+    public void process(EventBooker eventBooker, Halls halls, String[] data) {
+        if (data.length < 6) {
+            throw new IllegalArgumentException("Invalid number of arguments. Enter at least 6.");
+        }
+
+        long minutes = Long.parseLong(data[1]);
+        String time = data[3] + " " + data[4];
+        String eventName = getEventName(data).toString();
+        LocalDateTime date = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+
+        Event event = eventBooker.getEventByNameAndDate(eventName, date);
+        Hall hall = event.getHall();
+        SeatHold hold = eventBooker.holdSeat(event, hall.getSeatIndex(data[2]), minutes);
+        if (hold == null) {
+            Session.out().println("The seat is not free.");
+        } else {
+            Session.out().println("The seat is held for " + minutes + " minutes. Hold id: " + hold.getId());
+        }
+    }
+
+    /**
+     * Returns the routing key of the event the {@code hold} command changes.
+     *
+     * @param eventBooker the {@code EventBooker} instance
+     * @param data the parts of the command line
+     * @return the date and name of the event, or {@code null} if the command is incomplete
+     */
+    @Override
+    public String getRoutingKey(EventBooker eventBooker, String[] data) {
+        if (data.length < 6) {
+            return null;
+        }
+        return ShardedWriter.routingKey(data[3] + " " + data[4], getEventName(data).toString());
+    }
+
+    /**
+     * Extracts the event name from the user input data.
+     *
+     * @param data The user input data array.
+     * @return A `StringBuilder` containing the extracted event name.
+     */
+    private StringBuilder getEventName(String[] data) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 5; i < data.length - 1; i++) {
+            stringBuilder.append(data[i]).append(' ');
+        }
+        stringBuilder.append(data[data.length - 1]);
+        return stringBuilder;
+    }
+}
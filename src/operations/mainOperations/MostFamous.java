@@ -4,6 +4,7 @@ import entities.Event;
 import entities.EventBooker;
 import entities.Halls;
 import operations.interfaces.Operation;
+import utils.Session;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -34,11 +35,24 @@ public class MostFamous implements Operation {
      */
     @Override
     public void process(EventBooker eventBooker, Halls halls, String[] data) {
+        Map.Entry<String, Integer> mostFamous = mostFamous(eventBooker);
+
+        // Print the result
+        Session.out().println("The most watched event is: " + mostFamous.getKey() + " with " + mostFamous.getValue() + " tickets sold.");
+    }
+
+    /**
+     * Finds the event name with the most tickets sold, adding up the events that share a name.
+     *
+     * @param eventBooker The `EventBooker` instance that provides access to all events and their ticket data.
+     * @return The event name paired with the number of tickets sold; an empty name and 0 if nothing was sold.
+     */
+    public Map.Entry<String, Integer> mostFamous(EventBooker eventBooker) {
         Map<String, Integer> soldTicketForShow = new HashMap<>();
 
         // Calculate the total number of tickets sold for each event
         for (Event event : eventBooker.getEvents()) {
-            int ticketsSold = event.getHall().getTickets().size();
+            int ticketsSold = event.getHall().getPayedCount();
             soldTicketForShow.merge(event.getName(), ticketsSold, Integer::sum);
         }
 
@@ -52,7 +66,6 @@ public class MostFamous implements Operation {
             }
         }
 
-        // Print the result
-        System.out.println("The most watched event is: " + mostWatched + " with " + mostBought + " tickets sold.");
+        return Map.entry(mostWatched, mostBought);
     }
 }
@@ -0,0 +1,40 @@
+package operations.mainOperations;
+
+import entities.BookingDeadlines;
+import entities.Event;
+import entities.EventBooker;
+import entities.Halls;
+import operations.interfaces.Operation;
+import utils.Session;
+
+import java.util.Map;
+
+/**
+ * The `Releases` class implements the `Operation` interface and reports the unpaid bookings that were
+ * released automatically because their event was about to start.
+ * <p>
+ * Each event with released bookings is listed with the number of seats released, ordered by date,
+ * followed by the total.
+ * </p>
+ */
+public class Releases implements Operation {
+
+    /**
+     * Processes the "releases" operation and prints the released bookings per event.
+     *
+     * @param eventBooker The `EventBooker` instance whose booking deadlines are reported.
+     * @param halls The `Halls` instance that contains hall information (not used in this operation).
+     * @param data A string array containing command data (not used in this operation).
+     */
+    @Override
+    public void process(EventBooker eventBooker, Halls halls, String[] data) {
+        BookingDeadlines bookingDeadlines = eventBooker.getBookingDeadlines();
+        for (Map.Entry<Event, Integer> entry : bookingDeadlines.getReleased()) {
+            Event event = entry.getKey();
+            Session.out().println(event.getName() + " on " + event.getDate() + ": "
+                    + entry.getValue() + " unpaid bookings released");
+        }
+        Session.out().println("Unpaid bookings are released " + bookingDeadlines.getWindow().toHours()
+                + " hours before the event. Released in total: " + bookingDeadlines.getTotalReleased());
+    }
+}
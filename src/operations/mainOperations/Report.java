@@ -2,6 +2,8 @@ package operations.mainOperations;
 
 import entities.*;
 import operations.interfaces.Operation;
+import utils.Session;
+import utils.TicketCodeAllocator;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -51,68 +53,60 @@ public class Report implements Operation {
         }
         if (data.length == 5) {
             //no hall number, group events by hall and print ticket details
-            Map<String, List<Event>> hallsToEvents = new HashMap<>();
-            for (Event event : eventBooker.getEvents()) {
-                if (checkDates(fromTime, toTime, event)) {
-                    if (hallsToEvents.containsKey(event.getHall().getNumber())) {
-                        hallsToEvents.get(event.getHall().getNumber()).add(event);
-                    } else {
-                        hallsToEvents.put(event.getHall().getNumber(), new ArrayList<>());
-                        hallsToEvents.get(event.getHall().getNumber()).add(event);
-                    }
-                }
-            }
-            for (Map.Entry<String, List<Event>> stringListEntry : hallsToEvents.entrySet()) {
-                System.out.println("Hall " + stringListEntry.getKey());
+            for (Map.Entry<String, List<Event>> stringListEntry : report(eventBooker, fromTime, toTime, null).entrySet()) {
+                Session.out().println("Hall " + stringListEntry.getKey());
                 List<Event> value = stringListEntry.getValue();
-                printTicketDetails(value);
+                printTicketDetails(eventBooker, value);
             }
         } else if (data.length == 6) {
             // hall number, filter events by hall number and print ticket details
-            List<Event> result = new ArrayList<>();
-            for (Event event : eventBooker.getEvents()) {
-                if (checkDates(fromTime, toTime, event)) {
-                    if (event.getHall().getNumber().equals(data[5])) {
-                        result.add(event);
-                    }
-                }
+            List<Event> result = report(eventBooker, fromTime, toTime, data[5]).get(data[5]);
+            if (result != null) {
+                printTicketDetails(eventBooker, result);
             }
-            printTicketDetails(result);
         }
     }
 
     /**
-     * Converts a date and time string into a {@code LocalDateTime} object using the pattern "yyyy-MM-dd HH:mm:ss".
+     * Groups the events within a date range by hall number, optionally keeping only one hall.
      *
-     * @param time the date and time string to be converted
-     * @return the corresponding {@code LocalDateTime} object
+     * @param eventBooker the {@code EventBooker} instance used to retrieve the events
+     * @param fromTime the start of the range, inclusive
+     * @param toTime the end of the range, inclusive
+     * @param hallNumber the number of the hall to keep, or {@code null} for all halls
+     * @return the events of the range by hall number
      */
-    private LocalDateTime convertTime(String time) {
-        return LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    public Map<String, List<Event>> report(EventBooker eventBooker, LocalDateTime fromTime, LocalDateTime toTime, String hallNumber) {
+        Map<String, List<Event>> hallsToEvents = new HashMap<>();
+        for (Event event : eventBooker.getEventsBetween(fromTime, toTime)) {
+            if (hallNumber == null || event.getHall().getNumber().equals(hallNumber)) {
+                hallsToEvents.computeIfAbsent(event.getHall().getNumber(), number -> new ArrayList<>()).add(event);
+            }
+        }
+        return hallsToEvents;
     }
 
     /**
-     * Checks if an event's date is within the specified date range.
+     * Converts a date and time string into a {@code LocalDateTime} object using the pattern "yyyy-MM-dd HH:mm:ss".
      *
-     * @param fromTime the start of the date range
-     * @param toTime the end of the date range
-     * @param event the {@code Event} to be checked
-     * @return {@code true} if the event's date is within the range or equal to the range boundaries, {@code false} otherwise
+     * @param time the date and time string to be converted
+     * @return the corresponding {@code LocalDateTime} object
      */
-    private boolean checkDates(LocalDateTime fromTime, LocalDateTime toTime, Event event) {
-        boolean range = event.getDate().isBefore(toTime) && event.getDate().isAfter(fromTime);
-        return range || event.getDate().isEqual(toTime) || event.getDate().isEqual(fromTime);
+    private LocalDateTime convertTime(String time) {
+        return LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
     }
 
     /**
      * Prints ticket details for a list of events.
      *
+     * @param eventBooker the {@code EventBooker} whose allocator renders the ticket codes
      * @param value a {@code List} of {@code Event} objects whose tickets' details are to be printed
      */
-    private void printTicketDetails(List<Event> value) {
+    private void printTicketDetails(EventBooker eventBooker, List<Event> value) {
+        TicketCodeAllocator allocator = eventBooker.getTicketCodeAllocator();
         for (Event event : value) {
             for (Ticket ticket : event.getHall().getTickets()) {
-                System.out.println("Ticket info: " + ticket.getCode() + "\n" + ticket.getSeatNumber());
+                Session.out().println("Ticket info: " + allocator.render(ticket.getCode()) + "\n" + ticket.getSeatNumber());
             }
         }
     }
@@ -3,13 +3,12 @@ package operations.mainOperations;
 import entities.Event;
 import entities.EventBooker;
 import entities.Halls;
-import entities.Row;
 import operations.interfaces.Operation;
 import utils.Pair;
+import utils.Session;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Scanner;
 
 /**
  * The {@code StatisticForTenPercent} class is responsible for processing events and performing statistical
@@ -23,6 +22,11 @@ import java.util.Scanner;
  * <p>
  * This class interacts with the {@code EventBooker} instance to retrieve and remove events, and with the {@code Halls}
  * instance to retrieve hall information, although the latter is not directly used in the processing method.
+ * <p>
+ * The answers are read from the {@link Session} of the client, or given once for all events as in
+ * {@code statistic yes}. The command is not a mutation: the question is asked and answered outside the
+ * writers, and only the removals are passed to the writer of the {@code EventBooker}, so a client that
+ * takes its time to answer holds up nobody else.
  */
 public class StatisticForTenPercent implements Operation {
 
@@ -39,11 +43,12 @@ public class StatisticForTenPercent implements Operation {
      *
      * @param eventBooker the {@code EventBooker} instance used to retrieve and modify event information
      * @param halls       the {@code Halls} instance used to retrieve hall information (not used in this method)
-     * @param data        an array of {@code String} containing command data (not used in this method)
+     * @param data        an array of {@code String} containing command data; an optional second element,
+     *                    {@code yes} or {@code no}, answers for every event instead of asking
      */
     @Override
     public void process(EventBooker eventBooker, Halls halls, String[] data) {
-        Scanner scanner = new Scanner(System.in);
+        String givenAnswer = data.length > 1 ? data[1] : null;
 
         // initialize map to store event data: event name -> (number of seats, tickets sold)
         Map<String, Pair<Integer, Integer>> eventTickets = new HashMap<>();
@@ -51,15 +56,15 @@ public class StatisticForTenPercent implements Operation {
         // Populate the map with ticket sales data for each event
         for (Event event : eventBooker.getEvents()) {
             if (!eventTickets.containsKey(event.getName())) {
-                int ticketsSold = event.getHall().getTickets().size();
-                int numberOfSeats = calculateNumberOfSeats(event);
+                int ticketsSold = event.getHall().getPayedCount();
+                int numberOfSeats = event.getHall().getMaxAmountOfTickets();
                 Pair<Integer, Integer> pair = new Pair<>(numberOfSeats, ticketsSold);
                 eventTickets.put(event.getName(), pair);
             } else {
                 Pair<Integer, Integer> pair = eventTickets.get(event.getName());
-                int numberOfSeats = pair.getNumberOfSeats() + calculateNumberOfSeats(event);
+                int numberOfSeats = pair.getNumberOfSeats() + event.getHall().getMaxAmountOfTickets();
                 pair.setNumberOfSeats(numberOfSeats);
-                pair.setTicketsSold(pair.getTicketsSold() + event.getHall().getTickets().size());
+                pair.setTicketsSold(pair.getTicketsSold() + event.getHall().getPayedCount());
                 eventTickets.put(event.getName(), pair);
             }
         }
@@ -69,10 +74,16 @@ public class StatisticForTenPercent implements Operation {
             double percentage = calculatePercentage(entry.getValue());
             if (percentage < 10.00) {
                 String eventName = entry.getKey();
-                System.out.println("Do you wish to remove this event (yes/no): " + eventName);
-                String answer = scanner.nextLine();
-                if (answer.equalsIgnoreCase("yes")) {
-                    eventBooker.removeEvents(eventBooker.getEventByName(entry.getKey()));
+                String answer = givenAnswer;
+                if (answer == null) {
+                    Session.out().println("Do you wish to remove this event (yes/no): " + eventName);
+                    answer = Session.readLine();
+                }
+                if ("yes".equalsIgnoreCase(answer)) {
+                    eventBooker.getWriter().run(null, () -> eventBooker.removeEvents(eventBooker.getEventByName(eventName)));
+                    if (givenAnswer != null) {
+                        Session.out().println("Removed " + eventName);
+                    }
                 }
             }
         }
@@ -90,20 +101,4 @@ public class StatisticForTenPercent implements Operation {
     private double calculatePercentage(Pair<Integer, Integer> pair) {
         return (pair.getTicketsSold() / (double) pair.getNumberOfSeats()) * 100.0;
     }
-
-    /**
-     * Calculates the total number of seats available for an event by summing the seats in each row of the event's hall.
-     * <p>
-     * This method iterates through the rows of the event's hall and sums up the number of seats in each row to get the total number of seats.
-     *
-     * @param event the {@code Event} for which the total number of seats is to be calculated
-     * @return the total number of seats available in the event's hall
-     */
-    private int calculateNumberOfSeats(Event event) {
-        int numberOfSeats = 0;
-        for (Row row : event.getHall().getRows()) {
-            numberOfSeats += row.getSeats().size();
-        }
-        return numberOfSeats;
-    }
 }
@@ -1,8 +1,12 @@
 package operations.mainOperations;
 
+import entities.Event;
 import entities.EventBooker;
+import entities.Hall;
 import entities.Halls;
 import operations.interfaces.Operation;
+import utils.Session;
+import utils.ShardedWriter;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -41,22 +45,33 @@ public class UnbookSeat implements Operation {
         String eventName = getEventName(data).toString();
         LocalDateTime date = LocalDateTime.parse(time, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
 
-        if (eventBooker.getEventByNameAndDate(eventName, date)
-                .getHall()
-                .getRows()
-                .get(Integer.parseInt(data[1]) - 1)
-                .getSeatByNumber(data[2])
-                .isBooked()) {
-
-            eventBooker.getEventByNameAndDate(eventName, date)
-                    .getHall()
-                    .getRows()
-                    .get(Integer.parseInt(data[1]) - 1)
-                    .getSeatByNumber(data[2])
-                    .setBooked(false);
+        Event event = eventBooker.getEventByNameAndDate(eventName, date);
+        Hall hall = event.getHall();
+        int seatIndex = hall.getSeatIndex(Integer.parseInt(data[1]), data[2]);
+        if (hall.getSeatStates().unbook(seatIndex)) {
+            eventBooker.getJournal().unbook(event.getId(), seatIndex);
         } else {
-            System.out.println("The seat is not booked");
+            if (hall.getSeatStates().isBooked(seatIndex)) {
+                Session.out().println("The seat is already paid for");
+            } else {
+                Session.out().println("The seat is not booked");
+            }
+        }
+    }
+
+    /**
+     * Returns the routing key of the event the {@code unbook} command changes.
+     *
+     * @param eventBooker the {@code EventBooker} instance
+     * @param data the parts of the command line
+     * @return the date and name of the event, or {@code null} if the command is incomplete
+     */
+    @Override
+    public String getRoutingKey(EventBooker eventBooker, String[] data) {
+        if (data.length < 6) {
+            return null;
         }
+        return ShardedWriter.routingKey(data[3] + " " + data[4], getEventName(data).toString());
     }
 
     /**
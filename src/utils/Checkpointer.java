@@ -0,0 +1,368 @@
+package utils;
+
+import entities.Event;
+import entities.EventBooker;
+import entities.Hall;
+import entities.HallLayout;
+import entities.HallSnapshot;
+import entities.Halls;
+import entities.SeatStates;
+import entities.Ticket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Checkpointer class recovers the events from a snapshot and a {@link Journal} at startup, and
+ * takes checkpoints in the background that keep the journal short.
+ * <p>
+ * A checkpoint rolls the journal, takes a snapshot of every event and writes them to a
+ * {@link SnapshotFile} next to the journal, then deletes the rolled journal files. The snapshot of an
+ * event is taken on the writer of its shard, between two mutations of the event, together with the
+ * journal position at that moment, so the checkpoint knows exactly which records of the event it
+ * contains. Only the seat states are copied there, and their store is told so, to hand them back
+ * after a restart if they have not changed since; the notes, the slow part for a large hall, are read
+ * afterwards. Sales go on while a checkpoint is written: they only wait while the journal is rolled
+ * and the seat states are copied. A background checkpoint that fails is reported on the console and
+ * kept for {@link #getLastFailure()}; the journal still holds every change, so the next one catches up.
+ * </p>
+ * <p>
+ * Recovery loads the snapshot and replays the journal records after it, skipping the records of each
+ * event that the snapshot already contains. The records are decoded straight from the mapped journal
+ * and applied to the seat states; the tickets are collected per hall and added in one batch at the
+ * end, so a restart costs the snapshot load plus time proportional to the journal tail.
+ * </p>
+ */
+public class Checkpointer {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final EventBooker eventBooker;
+    private final Halls halls;
+    private final ShardedWriter writer;
+    private final Journal journal;
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private volatile long threshold;
+    private volatile long lastStart;
+    private volatile long checkpointCount;
+    private volatile Exception lastFailure;
+    private Thread thread;
+
+    /**
+     * Constructs a Checkpointer that keeps its snapshot next to the journal, in a file with the name
+     * of the journal and a {@code .snapshot} extension. A checkpoint is taken whenever 64 MB of
+     * records have been appended since the last one.
+     *
+     * @param eventBooker The EventBooker whose events are recovered and checkpointed.
+     * @param halls       The halls the events take place in.
+     * @param writer      The ShardedWriter that runs the mutations of the events.
+     * @param journal     The journal, open on the given path.
+     * @param journalPath The path of the journal file.
+     */
+    public Checkpointer(EventBooker eventBooker, Halls halls, ShardedWriter writer, Journal journal, Path journalPath) {
+        this.eventBooker = eventBooker;
+        this.halls = halls;
+        this.writer = writer;
+        this.journal = journal;
+        this.journalPath = journalPath;
+        this.snapshotPath = journalPath.resolveSibling(journalPath.getFileName() + ".snapshot");
+        this.threshold = 64L << 20;
+    }
+
+    /**
+     * Sets how many bytes of records are appended to the journal before a checkpoint is taken.
+     *
+     * @param threshold The number of bytes.
+     * @return The current Checkpointer instance for method chaining.
+     */
+    public Checkpointer setThreshold(long threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Invalid checkpoint threshold: " + threshold);
+        }
+        this.threshold = threshold;
+        return this;
+    }
+
+    /**
+     * Returns the number of checkpoints taken.
+     *
+     * @return The number of checkpoints.
+     */
+    public long getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * Returns the failure of the last checkpoint taken in the background.
+     *
+     * @return The exception the last background checkpoint failed with, or null if it succeeded or none
+     * was taken yet.
+     */
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Loads the last checkpoint, if there is one, and replays the journal after it into the EventBooker.
+     * Must be called before the journal is set on the EventBooker, so the replay is not recorded again,
+     * and while the EventBooker has no events.
+     *
+     * @return The number of journal records replayed.
+     * @throws IOException If the snapshot or the journal cannot be read.
+     */
+    public long recover() throws IOException {
+        SnapshotFile.Checkpoint checkpoint = new SnapshotFile.Checkpoint();
+        if (Files.exists(snapshotPath)) {
+            for (Event event : SnapshotFile.read(snapshotPath, halls, checkpoint)) {
+                eventBooker.addEvent(event);
+            }
+        }
+        Replay replay = new Replay(checkpoint);
+        long count = Journal.replay(journalPath, checkpoint.getJournalStart(), replay);
+        replay.finish();
+        lastStart = checkpoint.getJournalStart();
+        return count;
+    }
+
+    /**
+     * Starts the daemon thread that takes a checkpoint when the journal has grown past the threshold,
+     * and lets {@link Journal#checkpoint()} take one on demand.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        journal.setCheckpointer(this);
+        thread = new Thread(this::checkpointLoop, "journal-checkpointer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Takes a checkpoint: rolls the journal, writes a snapshot of every event and deletes the journal
+     * files the snapshot covers. May be called from any thread, also from a mutation without a routing
+     * key, which already holds every shard; checkpoints taken at the same time are written one at a time,
+     * and one that was overtaken by a later checkpoint is dropped.
+     *
+     * @throws IOException If the journal or the snapshot cannot be written.
+     */
+    public void checkpoint() throws IOException {
+        long start = journal.roll();
+        SnapshotFile.Checkpoint checkpoint = new SnapshotFile.Checkpoint().setJournalStart(start);
+        List<Event> events = new ArrayList<>();
+        List<HallSnapshot> copies = new ArrayList<>();
+        List<Integer> ticketSerials = new ArrayList<>();
+        for (Event event : eventBooker.getEvents()) {
+            String key = ShardedWriter.routingKey(event.getDate().format(DATE_FORMAT), event.getName());
+            writer.run(key, () -> {
+                // a removed event stays removed: its removal may already be before the checkpoint
+                if (eventBooker.isRegistered(event)) {
+                    Hall hall = event.getHall();
+                    long position = journal.getPosition();
+                    copies.add(hall.copyStates());
+                    hall.checkpointed(event.getId(), position);
+                    ticketSerials.add(hall.getTicketSerial());
+                    checkpoint.setEventPosition(event.getId(), position);
+                    events.add(event);
+                }
+            });
+        }
+        List<HallSnapshot> snapshots = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            snapshots.add(events.get(i).getHall().addNotes(copies.get(i)));
+        }
+        // a note read above may come from a change after the position of its event; once the change is
+        // durable, replaying it fixes the note up, so wait for the changes in progress and force them
+        writer.run(null, () -> {
+        });
+        journal.sync();
+        // a store only claims the checkpoint once the snapshot does, so its words must be written out first
+        for (Event event : events) {
+            event.getHall().forceStates();
+        }
+        int[] serials = new int[ticketSerials.size()];
+        for (int i = 0; i < serials.length; i++) {
+            serials[i] = ticketSerials.get(i);
+        }
+        // the writers are not waited for while this lock is held, so a checkpoint that runs inside a
+        // mutation cannot deadlock with one on the checkpoint thread
+        synchronized (this) {
+            if (start < lastStart) {
+                return;
+            }
+            SnapshotFile.write(snapshotPath, events, snapshots, serials, checkpoint);
+            journal.deleteBefore(start);
+            lastStart = start;
+            checkpointCount++;
+        }
+    }
+
+    private void checkpointLoop() {
+        while (true) {
+            try {
+                TimeUnit.SECONDS.sleep(1);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (journal.getPosition() - lastStart >= threshold) {
+                try {
+                    checkpoint();
+                    lastFailure = null;
+                } catch (IOException | RuntimeException e) {
+                    // the journal still holds every change, so the next attempt loses nothing
+                    lastFailure = e;
+                    Session.out().println("Checkpoint failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of the replay of one event.
+     */
+    private static final class ReplayedEvent {
+        private final Event event;
+        private final HallLayout layout;
+        private final SeatStates states;
+        private Ticket[] tickets;
+        private int ticketCount;
+        private int ticketSerial;
+
+        private ReplayedEvent(Event event) {
+            this.event = event;
+            this.layout = event.getHall().getLayout();
+            this.states = event.getHall().getSeatStates();
+            this.tickets = new Ticket[16];
+        }
+    }
+
+    /**
+     * Applies the journal records after a checkpoint to the EventBooker.
+     * The replay state of an event, and with it its seat states, is only set up once a record of the
+     * event is met, so the halls of events without changes in the journal tail stay unbuilt.
+     */
+    private final class Replay implements Journal.RecordHandler {
+        // the position to replay each known event from; -1 for events added by the journal
+        private final Map<Long, Long> froms;
+        private final Map<Long, ReplayedEvent> events;
+        private ReplayedEvent last;
+        private ByteBuffer lastNoteBytes;
+        private String lastNote;
+
+        private Replay(SnapshotFile.Checkpoint checkpoint) {
+            this.froms = new HashMap<>();
+            this.events = new HashMap<>();
+            for (Event event : eventBooker.getEvents()) {
+                froms.put(event.getId(), checkpoint.getEventPosition(event.getId()));
+            }
+        }
+
+        @Override
+        public void apply(byte type, long position, ByteBuffer fields) {
+            long eventId = fields.getLong();
+            if (type == Journal.ADD_EVENT) {
+                if (!froms.containsKey(eventId)) {
+                    LocalDateTime date = LocalDateTime.ofEpochSecond(fields.getLong(), fields.getInt(), ZoneOffset.UTC);
+                    String name = Journal.getString(fields);
+                    Event event = new Event(date, name, halls.createHall(Journal.getString(fields))).setId(eventId);
+                    eventBooker.addEvent(event);
+                    froms.put(eventId, -1L);
+                }
+                return;
+            }
+            if (type == Journal.REMOVE_EVENT) {
+                Long from = froms.get(eventId);
+                if (from != null && position >= from) {
+                    eventBooker.removeEvent(eventBooker.getEventById(eventId));
+                    froms.remove(eventId);
+                    events.remove(eventId);
+                    last = null;
+                }
+                return;
+            }
+            ReplayedEvent replayed = last != null && last.event.getId() == eventId ? last : replayedEvent(eventId, position);
+            if (replayed == null) {
+                return;
+            }
+            last = replayed;
+            switch (type) {
+                case Journal.BOOK -> {
+                    String note = readNote(fields);
+                    for (int i = fields.getInt(); i > 0; i--) {
+                        replayed.states.book(fields.getInt(), note);
+                    }
+                }
+                case Journal.UNBOOK -> replayed.states.unbook(fields.getInt());
+                case Journal.TICKET -> {
+                    int seat = fields.getInt();
+                    int serial = fields.getInt();
+                    replayed.states.pay(seat);
+                    if (replayed.ticketCount == replayed.tickets.length) {
+                        replayed.tickets = Arrays.copyOf(replayed.tickets, replayed.ticketCount * 2);
+                    }
+                    replayed.tickets[replayed.ticketCount++] = new Ticket(fields.getLong(), replayed.layout.getSeatLabel(seat));
+                    replayed.ticketSerial = Math.max(replayed.ticketSerial, serial + 1);
+                }
+                default -> {
+                    // a record of a newer version; its change is not known here
+                }
+            }
+        }
+
+        /**
+         * Returns the replay state of an event, set up by the first record of the event that the
+         * checkpoint does not already contain, or null if the record is to be skipped.
+         */
+        private ReplayedEvent replayedEvent(long eventId, long position) {
+            ReplayedEvent replayed = events.get(eventId);
+            if (replayed == null) {
+                Long from = froms.get(eventId);
+                if (from == null || position < from) {
+                    return null;
+                }
+                replayed = new ReplayedEvent(eventBooker.getEventById(eventId));
+                events.put(eventId, replayed);
+            }
+            return replayed;
+        }
+
+        /**
+         * Reads the note of a booking, reusing the previous note if it is the same, as it mostly is.
+         */
+        private String readNote(ByteBuffer fields) {
+            int length = fields.getInt();
+            ByteBuffer bytes = fields.slice(fields.position(), length);
+            fields.position(fields.position() + length);
+            if (!bytes.equals(lastNoteBytes)) {
+                byte[] copy = new byte[length];
+                bytes.get(0, copy);
+                lastNoteBytes = ByteBuffer.wrap(copy);
+                lastNote = new String(copy, StandardCharsets.UTF_8);
+            }
+            return lastNote;
+        }
+
+        /**
+         * Adds the tickets collected for each hall.
+         */
+        private void finish() {
+            for (ReplayedEvent replayed : events.values()) {
+                if (replayed.ticketCount > 0) {
+                    replayed.event.getHall().appendTickets(replayed.tickets, replayed.ticketCount, replayed.ticketSerial);
+                }
+            }
+        }
+    }
+}
@@ -10,16 +10,31 @@ package utils;
 public enum CommandNames {
     // Specific commands
     /** Command to add a new event. */
-    ADD_EVENT_COMMAND("addevent"),
+    ADD_EVENT_COMMAND("addevent", true),
 
     /** Command to list all bookings. */
     BOOKING_COMMAND("bookings"),
 
     /** Command to book a specific seat for an event. */
-    BOOK_SEAT_COMMAND("book"),
+    BOOK_SEAT_COMMAND("book", true),
 
     /** Command to buy a ticket for an event. */
-    BUY_TICKET_COMMAND("buy"),
+    BUY_TICKET_COMMAND("buy", true),
+
+    /** Command to book several seats for an event at once. */
+    BOOK_GROUP_COMMAND("bookgroup", true),
+
+    /** Command to buy tickets for several seats of an event at once. */
+    BUY_GROUP_COMMAND("buygroup", true),
+
+    /** Command to book the best available block of adjacent seats for an event. */
+    BOOK_BEST_COMMAND("bookbest", true),
+
+    /** Command to hold a seat for an event for a limited time. */
+    HOLD_SEAT_COMMAND("hold", true),
+
+    /** Command to report the unpaid bookings released ahead of their events. */
+    RELEASES_COMMAND("releases"),
 
     /** Command to check the validity of a ticket code. */
     CHECK_COMMAND("check"),
@@ -37,20 +52,20 @@ public enum CommandNames {
     STATISTIC_FOR_TEN_PERCENT_COMMAND("statistic"),
 
     /** Command to unbook a previously booked seat. */
-    UNBOOK_SEAT_COMMAND("unbook"),
+    UNBOOK_SEAT_COMMAND("unbook", true),
 
     // Base commands
     /** Command to open a file. */
-    OPEN("open"),
+    OPEN("open", true, true),
 
     /** Command to close the current file. */
-    CLOSE("close"),
+    CLOSE("close", false, true),
 
     /** Command to save the current file. */
-    SAVE("save"),
+    SAVE("save", false, true),
 
     /** Command to save the current file with a new name. */
-    SAVEAS("saveas"),
+    SAVEAS("saveas", false, true),
 
     /** Command to display help information. */
     HELP("help"),
@@ -59,14 +74,39 @@ public enum CommandNames {
     EXIT("exit");
 
     private final String code;
+    private final boolean mutation;
+    private final boolean consoleOnly;
 
     /**
-     * Constructs a {@code CommandNames} enum with the specified code.
+     * Constructs a {@code CommandNames} enum with the specified code for a command that does not change the events.
      *
      * @param code the code associated with the command
      */
     CommandNames(String code) {
+        this(code, false);
+    }
+
+    /**
+     * Constructs a {@code CommandNames} enum with the specified code.
+     *
+     * @param code     the code associated with the command
+     * @param mutation whether the command changes the events or their seats
+     */
+    CommandNames(String code, boolean mutation) {
+        this(code, mutation, false);
+    }
+
+    /**
+     * Constructs a {@code CommandNames} enum with the specified code.
+     *
+     * @param code        the code associated with the command
+     * @param mutation    whether the command changes the events or their seats
+     * @param consoleOnly whether the command is refused to network clients
+     */
+    CommandNames(String code, boolean mutation, boolean consoleOnly) {
         this.code = code;
+        this.mutation = mutation;
+        this.consoleOnly = consoleOnly;
     }
 
     /**
@@ -78,6 +118,26 @@ public enum CommandNames {
         return code;
     }
 
+    /**
+     * Checks if the command changes the events or their seats. Such commands are run one at a time
+     * by the writer thread of the {@code Invoker}.
+     *
+     * @return true for a mutation, false for a read-only command
+     */
+    public boolean isMutation() {
+        return mutation;
+    }
+
+    /**
+     * Checks if the command may only be run from the console. The file commands are, as they read and
+     * write any path of the server they are given.
+     *
+     * @return true for a console-only command, false for a command network clients may run
+     */
+    public boolean isConsoleOnly() {
+        return consoleOnly;
+    }
+
     /**
      * Retrieves the {@code CommandNames} enum constant corresponding to the specified code.
      *
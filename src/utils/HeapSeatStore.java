@@ -0,0 +1,57 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code HeapSeatStore} class keeps the words and counters of a {@link SeatStore} in atomic arrays
+ * on the Java heap. It is the default store of every hall.
+ */
+public class HeapSeatStore implements SeatStore {
+    /** Creates heap stores. */
+    public static final SeatStore.Factory FACTORY = HeapSeatStore::new;
+
+    private final AtomicLongArray words;
+    private final AtomicIntegerArray counters;
+
+    /**
+     * Constructs a store with every word and counter set to zero.
+     *
+     * @param words    the number of words
+     * @param counters the number of counters
+     */
+    public HeapSeatStore(int words, int counters) {
+        this.words = new AtomicLongArray(words);
+        this.counters = new AtomicIntegerArray(counters);
+    }
+
+    @Override
+    public int wordCount() {
+        return words.length();
+    }
+
+    @Override
+    public long getWord(int word) {
+        return words.get(word);
+    }
+
+    @Override
+    public void setWord(int word, long value) {
+        words.set(word, value);
+    }
+
+    @Override
+    public boolean compareAndSetWord(int word, long expect, long update) {
+        return words.compareAndSet(word, expect, update);
+    }
+
+    @Override
+    public int getCounter(int counter) {
+        return counters.get(counter);
+    }
+
+    @Override
+    public void addToCounter(int counter, int delta) {
+        counters.addAndGet(counter, delta);
+    }
+}
@@ -0,0 +1,635 @@
+package utils;
+
+import entities.Event;
+import exceptions.FileException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * The Journal class is an append-only write-ahead log of the changes to the events: events added and
+ * removed, seats booked and unbooked, and tickets issued. Every change is recorded before the command
+ * that made it is acknowledged, so the state can be rebuilt after a crash.
+ * <p>
+ * The file starts with an eight byte magic number, a format version and the position of its first
+ * record. Each record is its length, a CRC32C checksum and a payload of a type byte and the fields of
+ * the change, all big-endian. Positions are logical: they count the bytes of the records appended
+ * since the journal was created and keep growing across {@link #roll()}s, which move the records so
+ * far to a file named after their first position, e.g. {@code journal.1048576}, and start a new one.
+ * A checkpoint rolls the journal, saves the state and then deletes the rolled files it covers, so
+ * the journal only holds the changes since the last checkpoint; {@link #replay(Path, long, RecordHandler)}
+ * reads the rolled files and the current one in order.
+ * Records describe the effect of a command rather than the command itself, e.g. the id of an added
+ * event and the code of an issued ticket, so a replay does not depend on the order in which ids and
+ * codes were handed out. A record that was only partly written when the process died fails its
+ * checksum; it is cut off when the journal is opened again.
+ * </p>
+ * <p>
+ * Records are appended to an in-memory buffer, which is swapped for a second buffer and written out
+ * when the journal is synced. How often that happens is the {@link Durability} of the journal:
+ * </p>
+ * <ul>
+ *     <li>{@link Durability#PER_COMMAND} forces every record to disk as it is appended,</li>
+ *     <li>{@link Durability#GROUPED} forces once per batch of the writer, through {@link #sync()},
+ *     and concurrent syncs share one force: while one thread forces, the records of the others pile
+ *     up and the next force covers all of them,</li>
+ *     <li>{@link Durability#ASYNC} forces every ten milliseconds on a background thread, so a crash
+ *     may lose the last few milliseconds of changes.</li>
+ * </ul>
+ * <p>
+ * A journal constructed without a file records nothing.
+ * </p>
+ */
+public class Journal implements Closeable {
+    /** The type of a record of an added event. */
+    public static final byte ADD_EVENT = 1;
+    /** The type of a record of a removed event. */
+    public static final byte REMOVE_EVENT = 2;
+    /** The type of a record of booked seats. */
+    public static final byte BOOK = 3;
+    /** The type of a record of an unbooked seat. */
+    public static final byte UNBOOK = 4;
+    /** The type of a record of an issued ticket; the seat of the ticket is paid for. */
+    public static final byte TICKET = 5;
+
+    private static final long MAGIC = 0x8954534A4E0D0A1AL;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final long ASYNC_INTERVAL_MILLIS = 10;
+
+    /**
+     * When the records of the journal are forced to disk.
+     */
+    public enum Durability {
+        /** Every record is forced as it is appended. */
+        PER_COMMAND,
+        /** The records of a batch of the writer are forced together before the batch is acknowledged. */
+        GROUPED,
+        /** The records are forced periodically in the background. */
+        ASYNC
+    }
+
+    /**
+     * Receives the records of a journal as it is replayed.
+     */
+    public interface RecordHandler {
+        /**
+         * Applies one record. The fields are read straight from the buffer, in the order the
+         * recording method of the type writes them; strings are a length followed by UTF-8 bytes
+         * and can be read with {@link Journal#getString(ByteBuffer)}.
+         *
+         * @param type     The type of the record, e.g. {@link Journal#BOOK}.
+         * @param position The position of the record.
+         * @param fields   The fields of the record, positioned after the type byte.
+         */
+        void apply(byte type, long position, ByteBuffer fields);
+    }
+
+    private final Path path;
+    private FileChannel channel;
+    private long base;
+    private final Durability durability;
+    private final ReentrantLock flushLock;
+    private final CRC32C checksum;
+    private ByteBuffer pending;
+    private ByteBuffer flushing;
+    private int recordStart;
+    private volatile long appended;
+    private volatile long durable;
+    private volatile long syncCount;
+    private volatile boolean closed;
+    private volatile Checkpointer checkpointer;
+
+    /**
+     * Constructs a Journal that records nothing.
+     */
+    public Journal() {
+        this.path = null;
+        this.channel = null;
+        this.durability = Durability.ASYNC;
+        this.flushLock = new ReentrantLock();
+        this.checksum = null;
+    }
+
+    /**
+     * Opens the journal in the given file, creating it if it does not exist. Records are appended
+     * after the last complete record; a partly written record at the end is cut off.
+     *
+     * @param path       The path of the journal file.
+     * @param durability When records are forced to disk.
+     * @throws IOException   If the file cannot be opened.
+     * @throws FileException If the file is not a journal.
+     */
+    public Journal(Path path, Durability durability) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.durability = durability;
+        this.flushLock = new ReentrantLock();
+        this.checksum = new CRC32C();
+        this.pending = ByteBuffer.allocate(64 * 1024);
+        this.flushing = ByteBuffer.allocate(64 * 1024);
+        try {
+            if (channel.size() == 0) {
+                // a new journal continues after the rolled files, if any are left
+                TreeMap<Long, Path> rolled = rolledFiles(path);
+                long start = rolled.isEmpty() ? 0 : rolled.lastKey() + validLength(rolled.lastEntry().getValue()) - HEADER_BYTES;
+                writeHeader(channel, start);
+            }
+            long end = validLength(channel);
+            this.base = readBase(channel);
+            channel.truncate(end);
+            channel.position(end);
+            channel.force(true);
+            this.appended = base + end - HEADER_BYTES;
+            this.durable = appended;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (durability == Durability.ASYNC) {
+            Thread flusher = new Thread(this::flushPeriodically, "journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    /**
+     * Checks if the journal records to a file.
+     *
+     * @return True if the journal has a file, false if it records nothing.
+     */
+    public boolean isEnabled() {
+        return channel != null;
+    }
+
+    /**
+     * Returns when the records of the journal are forced to disk.
+     *
+     * @return The durability.
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Returns the position the next record will be appended at. Every record appended before this
+     * call, on any thread, has a lower position.
+     *
+     * @return The position.
+     */
+    public long getPosition() {
+        return appended;
+    }
+
+    /**
+     * Sets the checkpointer that takes the checkpoints of this journal.
+     *
+     * @param checkpointer The Checkpointer.
+     */
+    void setCheckpointer(Checkpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
+
+    /**
+     * Takes a checkpoint now and waits for it, e.g. because the state was changed in a way the journal
+     * does not record. Does nothing if no checkpointer was started for this journal.
+     *
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void checkpoint() throws IOException {
+        Checkpointer current = checkpointer;
+        if (current != null) {
+            current.checkpoint();
+        }
+    }
+
+    /**
+     * Moves the records so far to a rolled file and starts a new journal file. Appending waits
+     * while the records are forced and the files are switched.
+     *
+     * @return The position of the first record of the new file; every earlier record is in a rolled file.
+     * @throws IOException If the journal cannot be written.
+     */
+    public long roll() throws IOException {
+        if (channel == null) {
+            return 0;
+        }
+        flushLock.lock();
+        try {
+            synchronized (this) {
+                flush(appended);
+                long start = appended;
+                channel.close();
+                Files.move(path, rolledPath(path, base), StandardCopyOption.ATOMIC_MOVE);
+                FileChannel next = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                writeHeader(next, start);
+                next.position(HEADER_BYTES);
+                next.force(true);
+                channel = next;
+                base = start;
+                return start;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the rolled files whose records all come before the given position.
+     *
+     * @param position The position of the first record that is still needed.
+     * @throws IOException If a file cannot be deleted.
+     */
+    public void deleteBefore(long position) throws IOException {
+        if (channel == null) {
+            return;
+        }
+        TreeMap<Long, Path> rolled = rolledFiles(path);
+        for (var entry : rolled.entrySet()) {
+            Long next = rolled.higherKey(entry.getKey());
+            long end = next != null ? next : base;
+            if (end <= position) {
+                Files.deleteIfExists(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times the journal was forced to disk.
+     *
+     * @return The number of forces.
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Records an added event.
+     *
+     * @param event The event, with its id.
+     */
+    public void addEvent(Event event) {
+        if (channel == null) {
+            return;
+        }
+        byte[] name = event.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] hallName = ("Hall-" + event.getHall().getNumber()).getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            ByteBuffer out = begin(ADD_EVENT, 2 * Long.BYTES + 3 * Integer.BYTES + name.length + hallName.length);
+            out.putLong(event.getId())
+                    .putLong(event.getDate().toEpochSecond(ZoneOffset.UTC))
+                    .putInt(event.getDate().getNano())
+                    .putInt(name.length).put(name)
+                    .putInt(hallName.length).put(hallName);
+            end(out);
+        }
+        afterAppend();
+    }
+
+    /**
+     * Records a removed event.
+     *
+     * @param eventId The id of the event.
+     */
+    public void removeEvent(long eventId) {
+        if (channel == null) {
+            return;
+        }
+        synchronized (this) {
+            ByteBuffer out = begin(REMOVE_EVENT, Long.BYTES);
+            out.putLong(eventId);
+            end(out);
+        }
+        afterAppend();
+    }
+
+    /**
+     * Records seats booked together with the same note.
+     *
+     * @param eventId The id of the event.
+     * @param note    The note of the bookings.
+     * @param seats   The indexes of the seats.
+     */
+    public void book(long eventId, String note, int... seats) {
+        if (channel == null) {
+            return;
+        }
+        byte[] text = note == null ? new byte[0] : note.getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            ByteBuffer out = begin(BOOK, Long.BYTES + 2 * Integer.BYTES + text.length + Integer.BYTES * seats.length);
+            out.putLong(eventId).putInt(text.length).put(text).putInt(seats.length);
+            for (int seat : seats) {
+                out.putInt(seat);
+            }
+            end(out);
+        }
+        afterAppend();
+    }
+
+    /**
+     * Records an unbooked seat.
+     *
+     * @param eventId The id of the event.
+     * @param seat    The index of the seat.
+     */
+    public void unbook(long eventId, int seat) {
+        if (channel == null) {
+            return;
+        }
+        synchronized (this) {
+            ByteBuffer out = begin(UNBOOK, Long.BYTES + Integer.BYTES);
+            out.putLong(eventId).putInt(seat);
+            end(out);
+        }
+        afterAppend();
+    }
+
+    /**
+     * Records an issued ticket, whose seat is paid for.
+     *
+     * @param eventId The id of the event.
+     * @param seat    The index of the seat.
+     * @param serial  The serial the ticket code was allocated from.
+     * @param code    The ticket code.
+     */
+    public void ticket(long eventId, int seat, int serial, long code) {
+        if (channel == null) {
+            return;
+        }
+        synchronized (this) {
+            ByteBuffer out = begin(TICKET, Long.BYTES + 2 * Integer.BYTES + Long.BYTES);
+            out.putLong(eventId).putInt(seat).putInt(serial).putLong(code);
+            end(out);
+        }
+        afterAppend();
+    }
+
+    /**
+     * Forces the records appended so far to disk, unless the durability is {@link Durability#ASYNC}.
+     * If another thread is forcing already, waits for it and forces whatever it did not cover.
+     *
+     * @throws FileException If the journal cannot be written.
+     */
+    public void sync() {
+        if (channel != null && durability != Durability.ASYNC) {
+            flush(appended);
+        }
+    }
+
+    /**
+     * Forces the records appended so far to disk and closes the journal.
+     *
+     * @throws IOException If the journal cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null || closed) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            flush(appended);
+            closed = true;
+            channel.close();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Replays the records of a journal, from its rolled files and its current file, in order.
+     * The files are read through read-only mappings and the records are handed over without being
+     * copied. Reading stops at the first record that fails its checksum.
+     *
+     * @param path    The path of the journal file.
+     * @param from    The position of the first record to replay; earlier records are skipped.
+     * @param handler The handler the records are passed to.
+     * @return The number of records replayed.
+     * @throws IOException   If a file cannot be read.
+     * @throws FileException If a file is not a journal.
+     */
+    public static long replay(Path path, long from, RecordHandler handler) throws IOException {
+        List<Path> files = new ArrayList<>(rolledFiles(path).values());
+        if (Files.exists(path)) {
+            files.add(path);
+        }
+        long count = 0;
+        CRC32C crc = new CRC32C();
+        for (Path file : files) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size == 0) {
+                    continue;
+                }
+                MappedByteBuffer in = map(channel, size);
+                long base = in.getLong(Long.BYTES + Integer.BYTES);
+                int position = HEADER_BYTES;
+                while (position + RECORD_HEADER_BYTES <= size) {
+                    int length = in.getInt(position);
+                    if (length <= 0 || length > size - position - RECORD_HEADER_BYTES) {
+                        break;
+                    }
+                    ByteBuffer payload = in.slice(position + RECORD_HEADER_BYTES, length);
+                    crc.reset();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != in.getInt(position + Integer.BYTES)) {
+                        break;
+                    }
+                    long recordPosition = base + position - HEADER_BYTES;
+                    if (recordPosition >= from) {
+                        payload.rewind();
+                        handler.apply(payload.get(), recordPosition, payload);
+                        count++;
+                    }
+                    position += RECORD_HEADER_BYTES + length;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads a string field of a record: its length followed by its UTF-8 bytes.
+     *
+     * @param fields The fields of the record, positioned at the string.
+     * @return The string.
+     */
+    public static String getString(ByteBuffer fields) {
+        byte[] bytes = new byte[fields.getInt()];
+        fields.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Starts a record, growing the buffer if needed; the caller holds the lock of the journal.
+     */
+    private ByteBuffer begin(byte type, int fieldBytes) {
+        int size = RECORD_HEADER_BYTES + 1 + fieldBytes;
+        if (pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            pending = grown.put(pending);
+        }
+        recordStart = pending.position();
+        return pending.putInt(1 + fieldBytes).putInt(0).put(type);
+    }
+
+    /**
+     * Fills in the checksum of the record just written to the buffer.
+     */
+    private void end(ByteBuffer out) {
+        int start = recordStart;
+        int length = out.getInt(start);
+        checksum.reset();
+        checksum.update(out.slice(start + RECORD_HEADER_BYTES, length));
+        out.putInt(start + Integer.BYTES, (int) checksum.getValue());
+        appended += RECORD_HEADER_BYTES + length;
+    }
+
+    private void afterAppend() {
+        if (durability == Durability.PER_COMMAND) {
+            flush(appended);
+        }
+    }
+
+    private void flush(long target) {
+        if (durable >= target) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (durable >= target || closed) {
+                return;
+            }
+            long end;
+            synchronized (this) {
+                ByteBuffer full = pending;
+                pending = flushing;
+                flushing = full;
+                end = appended;
+            }
+            flushing.flip();
+            while (flushing.hasRemaining()) {
+                channel.write(flushing);
+            }
+            flushing.clear();
+            channel.force(false);
+            durable = end;
+            syncCount++;
+        } catch (IOException e) {
+            throw new FileException("The journal could not be written");
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPeriodically() {
+        while (!closed) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(ASYNC_INTERVAL_MILLIS);
+                flush(appended);
+            } catch (InterruptedException e) {
+                return;
+            } catch (FileException e) {
+                // retried on the next tick; the failure shows up again on close
+            }
+        }
+    }
+
+    /**
+     * Returns the length of a journal file up to the end of its last complete record.
+     */
+    private static long validLength(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return validLength(channel);
+        }
+    }
+
+    private static long validLength(FileChannel channel) throws IOException {
+        long size = channel.size();
+        MappedByteBuffer in = map(channel, size);
+        int position = HEADER_BYTES;
+        CRC32C crc = new CRC32C();
+        while (position + RECORD_HEADER_BYTES <= size) {
+            int length = in.getInt(position);
+            if (length <= 0 || length > size - position - RECORD_HEADER_BYTES) {
+                break;
+            }
+            crc.reset();
+            crc.update(in.slice(position + RECORD_HEADER_BYTES, length));
+            if ((int) crc.getValue() != in.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    /**
+     * Maps a journal file and checks its header.
+     */
+    private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new FileException("The journal is too large to open");
+        }
+        MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < HEADER_BYTES || in.getLong(0) != MAGIC || in.getInt(Long.BYTES) != VERSION) {
+            throw new FileException("The file is not a journal");
+        }
+        return in;
+    }
+
+    private static long readBase(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // the header was checked when the file was mapped
+        }
+        return header.getLong(Long.BYTES + Integer.BYTES);
+    }
+
+    private static void writeHeader(FileChannel channel, long base) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putLong(MAGIC).putInt(VERSION).putLong(base).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private static Path rolledPath(Path path, long base) {
+        return path.resolveSibling(path.getFileName() + "." + base);
+    }
+
+    /**
+     * Returns the rolled files of a journal by the position of their first record.
+     */
+    private static TreeMap<Long, Path> rolledFiles(Path path) throws IOException {
+        TreeMap<Long, Path> rolled = new TreeMap<>();
+        Path directory = path.toAbsolutePath().getParent();
+        String prefix = path.getFileName() + ".";
+        try (var files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    rolled.put(Long.parseLong(suffix), file);
+                }
+            }
+        }
+        return rolled;
+    }
+}
@@ -0,0 +1,157 @@
+package utils;
+
+/**
+ * The JsonWriter class builds a JSON document incrementally, without any dependency.
+ * Commas between members and elements are inserted automatically and strings are escaped.
+ * <p>
+ * Usage: {@code new JsonWriter().beginObject().name("valid").value(true).endObject().toString()}.
+ * </p>
+ */
+public class JsonWriter {
+    private final StringBuilder json;
+    private boolean needsComma;
+
+    /**
+     * Constructs an empty JsonWriter.
+     */
+    public JsonWriter() {
+        this.json = new StringBuilder(64);
+    }
+
+    /**
+     * Starts an object.
+     *
+     * @return The current JsonWriter instance for method chaining.
+     */
+    public JsonWriter beginObject() {
+        separate();
+        json.append('{');
+        needsComma = false;
+        return this;
+    }
+
+    /**
+     * Ends the current object.
+     *
+     * @return The current JsonWriter instance for method chaining.
+     */
+    public JsonWriter endObject() {
+        json.append('}');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Starts an array.
+     *
+     * @return The current JsonWriter instance for method chaining.
+     */
+    public JsonWriter beginArray() {
+        separate();
+        json.append('[');
+        needsComma = false;
+        return this;
+    }
+
+    /**
+     * Ends the current array.
+     *
+     * @return The current JsonWriter instance for method chaining.
+     */
+    public JsonWriter endArray() {
+        json.append(']');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param name The member name.
+     * @return The current JsonWriter instance for method chaining.
+     */
+    public JsonWriter name(String name) {
+        separate();
+        string(name);
+        json.append(':');
+        needsComma = false;
+        return this;
+    }
+
+    /**
+     * Writes a string value, or null.
+     *
+     * @param value The value.
+     * @return The current JsonWriter instance for method chaining.
+     */
+    public JsonWriter value(String value) {
+        separate();
+        if (value == null) {
+            json.append("null");
+        } else {
+            string(value);
+        }
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Writes a number value.
+     *
+     * @param value The value.
+     * @return The current JsonWriter instance for method chaining.
+     */
+    public JsonWriter value(long value) {
+        separate();
+        json.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value The value.
+     * @return The current JsonWriter instance for method chaining.
+     */
+    public JsonWriter value(boolean value) {
+        separate();
+        json.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Returns the JSON written so far.
+     *
+     * @return The JSON text.
+     */
+    @Override
+    public String toString() {
+        return json.toString();
+    }
+
+    private void separate() {
+        if (needsComma) {
+            json.append(',');
+            needsComma = false;
+        }
+    }
+
+    private void string(String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c == '\n') {
+                json.append("\\n");
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
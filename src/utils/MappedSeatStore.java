@@ -0,0 +1,274 @@
+package utils;
+
+import exceptions.FileException;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code MappedSeatStore} class keeps the words and counters of a {@link SeatStore} in a
+ * memory-mapped file instead of on the Java heap.
+ * <p>
+ * A header comes first, then the words, then the counters, in native byte order, and are read and
+ * changed in place through var handles, with the same volatile and compare-and-set semantics as atomic
+ * arrays. The pages belong to the operating system's page cache: they are only loaded when a seat of
+ * the hall is touched, and the pages of halls nobody looks at can be written out and dropped under
+ * memory pressure, so a large archive of halls neither fills the heap nor adds to garbage collection.
+ * </p>
+ * <p>
+ * The files outlive the process. The header holds the geometry of the store and, once a checkpoint of
+ * the {@link Journal} has copied the hall, the id of the event and its position in the checkpoint.
+ * The first change after that clears the position and writes the header out before the change is
+ * made, and changes racing it wait until it is out, so a file on disk never claims a checkpoint its
+ * words have moved past. After a restart the
+ * {@link #factory(Path) factory} hands a file back to the hall of its event if its header matches the
+ * checkpoint being recovered, and the hall is then not rebuilt from the snapshot; every other file is
+ * stale and deleted. A file is also deleted once its store is garbage collected, e.g. after its event
+ * was removed.
+ * </p>
+ */
+public final class MappedSeatStore implements SeatStore {
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final long MAGIC = 0x5345415453544F52L;
+    private static final int GEOMETRY_OFFSET = Long.BYTES;
+    private static final int EVENT_OFFSET = 2 * Long.BYTES;
+    private static final int POSITION_OFFSET = 3 * Long.BYTES;
+    private static final int HEADER_BYTES = 4 * Long.BYTES;
+    private static final String PREFIX = "hall-";
+    private static final String SUFFIX = ".seats";
+
+    private final MappedByteBuffer buffer;
+    private final int words;
+    private final int countersOffset;
+    private volatile boolean checkpointed;
+
+    /**
+     * Constructs a store in a new file of the given directory, with every word and counter set to zero.
+     *
+     * @param directory the directory of the file
+     * @param words     the number of words
+     * @param counters  the number of counters
+     * @throws FileException if the file cannot be created or mapped
+     */
+    public MappedSeatStore(Path directory, int words, int counters) {
+        this(createFile(directory, words, counters), words, counters, false);
+    }
+
+    private MappedSeatStore(Path file, int words, int counters, boolean recovered) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // a new file reads as zeros, and the mapping outlives the channel
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size(words, counters));
+        } catch (IOException e) {
+            throw new FileException("The seat store could not be mapped: " + file);
+        }
+        this.words = words;
+        this.countersOffset = HEADER_BYTES + words * Long.BYTES;
+        this.checkpointed = recovered;
+        if (!recovered) {
+            LONGS.setVolatile(buffer, GEOMETRY_OFFSET, geometry(words, counters));
+            LONGS.setVolatile(buffer, POSITION_OFFSET, -1L);
+            LONGS.setVolatile(buffer, 0, MAGIC);
+        }
+        CLEANER.register(this, () -> delete(file));
+    }
+
+    /**
+     * Returns a factory that creates stores in new files of the given directory, and recovers the
+     * stores the files of the directory kept from before a restart.
+     *
+     * @param directory the directory of the files; it must exist
+     * @return the factory
+     * @throws FileException if the directory cannot be read
+     */
+    public static SeatStore.Factory factory(Path directory) {
+        return new Directory(directory);
+    }
+
+    @Override
+    public int wordCount() {
+        return words;
+    }
+
+    @Override
+    public long getWord(int word) {
+        return (long) LONGS.getVolatile(buffer, HEADER_BYTES + word * Long.BYTES);
+    }
+
+    @Override
+    public void setWord(int word, long value) {
+        changing();
+        LONGS.setVolatile(buffer, HEADER_BYTES + word * Long.BYTES, value);
+    }
+
+    @Override
+    public boolean compareAndSetWord(int word, long expect, long update) {
+        changing();
+        return LONGS.compareAndSet(buffer, HEADER_BYTES + word * Long.BYTES, expect, update);
+    }
+
+    @Override
+    public int getCounter(int counter) {
+        return (int) INTS.getVolatile(buffer, countersOffset + counter * Integer.BYTES);
+    }
+
+    @Override
+    public void addToCounter(int counter, int delta) {
+        changing();
+        INTS.getAndAdd(buffer, countersOffset + counter * Integer.BYTES, delta);
+    }
+
+    @Override
+    public synchronized void checkpointed(long eventId, long position) {
+        LONGS.setVolatile(buffer, EVENT_OFFSET, eventId);
+        LONGS.setVolatile(buffer, POSITION_OFFSET, position);
+        checkpointed = true;
+    }
+
+    @Override
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Clears the checkpoint position before the first change after a checkpoint, and writes it out.
+     * The seats are changed by many threads at once, so the flag is only cleared once the header is
+     * out: every change that finds it still set waits on the lock of the store until then, and none
+     * lands in the words while the file on disk still claims the checkpoint.
+     */
+    private void changing() {
+        if (checkpointed) {
+            synchronized (this) {
+                if (checkpointed) {
+                    LONGS.setVolatile(buffer, POSITION_OFFSET, -1L);
+                    buffer.force(0, HEADER_BYTES);
+                    checkpointed = false;
+                }
+            }
+        }
+    }
+
+    private static long size(int words, int counters) {
+        long size = HEADER_BYTES + (long) words * Long.BYTES + (long) counters * Integer.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The hall is too large to map");
+        }
+        return size;
+    }
+
+    private static long geometry(int words, int counters) {
+        return (long) words << 32 | counters;
+    }
+
+    private static Path createFile(Path directory, int words, int counters) {
+        // checked first, so no file is left behind for a hall too large to map
+        size(words, counters);
+        try {
+            return Files.createTempFile(directory, PREFIX, SUFFIX);
+        } catch (IOException e) {
+            throw new FileException("The seat store could not be created in " + directory);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // some systems do not delete a file that is still mapped; it is deleted after the next restart
+        }
+    }
+
+    /**
+     * Reads the header of a file.
+     *
+     * @return the header as four longs, or null if the file is shorter or not a store
+     */
+    private static ByteBuffer readHeader(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete or the file ends
+            }
+        }
+        return !header.hasRemaining() && header.getLong(0) == MAGIC ? header : null;
+    }
+
+    /**
+     * The factory of the stores of one directory. The files the directory holds when the factory is
+     * created are from before a restart: those stamped by a checkpoint are kept for recovery, the
+     * others are deleted straight away.
+     */
+    private static final class Directory implements SeatStore.Factory {
+        private final Path directory;
+        private final Map<Long, List<Path>> kept;
+
+        private Directory(Path directory) {
+            this.directory = directory;
+            this.kept = new HashMap<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+                for (Path file : files) {
+                    ByteBuffer header = readHeader(file);
+                    if (header != null && header.getLong(POSITION_OFFSET) >= 0) {
+                        kept.computeIfAbsent(header.getLong(EVENT_OFFSET), id -> new ArrayList<>()).add(file);
+                    } else {
+                        delete(file);
+                    }
+                }
+            } catch (IOException e) {
+                throw new FileException("The seat stores could not be read from " + directory);
+            }
+        }
+
+        @Override
+        public SeatStore create(int words, int counters) {
+            return new MappedSeatStore(directory, words, counters);
+        }
+
+        @Override
+        public synchronized SeatStore recover(long eventId, long position, int words, int counters) {
+            List<Path> files = kept.remove(eventId);
+            if (files == null) {
+                return null;
+            }
+            Path recovered = null;
+            for (Path file : files) {
+                try {
+                    ByteBuffer header = readHeader(file);
+                    if (recovered == null && header != null && header.getLong(POSITION_OFFSET) == position
+                            && header.getLong(GEOMETRY_OFFSET) == geometry(words, counters)
+                            && Files.size(file) == size(words, counters)) {
+                        recovered = file;
+                        continue;
+                    }
+                } catch (IOException e) {
+                    // an unreadable file is as stale as one of another checkpoint
+                }
+                delete(file);
+            }
+            return recovered == null ? null : new MappedSeatStore(recovered, words, counters, true);
+        }
+
+        @Override
+        public synchronized void discardUnrecovered() {
+            for (List<Path> files : kept.values()) {
+                files.forEach(MappedSeatStore::delete);
+            }
+            kept.clear();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package utils;
+
+import exceptions.TicketException;
+
+/**
+ * The {@code PermutedTicketCodeAllocator} class allocates ticket codes as a sequence scrambled
+ * by a bijective permutation.
+ * <p>
+ * The event id and the serial of the ticket within its event are packed into one value, which is
+ * then permuted over the space of 8-character base62 codes with a keyed Feistel network and cycle walking.
+ * Because the permutation is a bijection, distinct (event id, serial) pairs always give distinct codes,
+ * while consecutive tickets still look unrelated. Decoding runs the permutation backwards.
+ * The class holds no mutable state, so it can be shared by any number of threads.
+ * </p>
+ */
+public class PermutedTicketCodeAllocator implements TicketCodeAllocator {
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int CODE_LENGTH = 8;
+    private static final long CODE_SPACE = 218_340_105_584_896L; // 62^8
+    private static final int SERIAL_BITS = 20;
+    private static final int HALF_BITS = 24;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private final int[] roundKeys;
+
+    /**
+     * Constructs an allocator with the default key, so codes stay the same across restarts.
+     */
+    public PermutedTicketCodeAllocator() {
+        this(0x5EED_C0DEL);
+    }
+
+    /**
+     * Constructs an allocator whose permutation is derived from the given key.
+     *
+     * @param key the key of the permutation
+     */
+    public PermutedTicketCodeAllocator(long key) {
+        this.roundKeys = new int[ROUNDS];
+        long state = key;
+        for (int i = 0; i < ROUNDS; i++) {
+            state = state * 6364136223846793005L + 1442695040888963407L;
+            roundKeys[i] = (int) (state >>> 32);
+        }
+    }
+
+    @Override
+    public long allocate(long eventId, int serial) {
+        if (serial < 0 || serial >= maxSerials()) {
+            throw new TicketException("No more tickets can be issued for this event");
+        }
+        long value = (eventId << SERIAL_BITS) | serial;
+        if (eventId < 0 || value >= CODE_SPACE) {
+            throw new TicketException("Event id out of range for ticket codes");
+        }
+        do {
+            value = encrypt(value);
+        } while (value >= CODE_SPACE);
+        return value;
+    }
+
+    @Override
+    public int maxSerials() {
+        return 1 << SERIAL_BITS;
+    }
+
+    @Override
+    public long eventIdOf(long code) {
+        long value = code;
+        do {
+            value = decrypt(value);
+        } while (value >= CODE_SPACE);
+        return value >>> SERIAL_BITS;
+    }
+
+    @Override
+    public String render(long code) {
+        char[] text = new char[CODE_LENGTH];
+        long value = code;
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            text[i] = ALPHABET.charAt((int) (value % 62));
+            value /= 62;
+        }
+        return new String(text);
+    }
+
+    @Override
+    public long parse(String text) {
+        if (text == null || text.length() != CODE_LENGTH) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            int digit = ALPHABET.indexOf(text.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * 62 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Applies the Feistel network to a 48-bit value.
+     *
+     * @param value the value to permute
+     * @return the permuted value
+     */
+    private long encrypt(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ round(right, roundKeys[i]);
+            left = right;
+            right = next;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    /**
+     * Reverses {@link #encrypt(long)}.
+     *
+     * @param value the permuted value
+     * @return the original value
+     */
+    private long decrypt(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int i = ROUNDS - 1; i >= 0; i--) {
+            long previous = right ^ round(left, roundKeys[i]);
+            right = left;
+            left = previous;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private static long round(long half, int key) {
+        long mixed = (half ^ key) * 0x9E3779B97F4A7C15L;
+        return (mixed >>> 29) & HALF_MASK;
+    }
+}
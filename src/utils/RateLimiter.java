@@ -0,0 +1,211 @@
+package utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * The RateLimiter class limits how many commands each client may send, and keeps a sliding-window
+ * count of its commands to flag abusive clients.
+ * <p>
+ * Each client has a token bucket, stored as a single timestamp in the style of the generic cell
+ * rate algorithm: the time at which the bucket would be full again. A command is allowed if that
+ * time is no more than the burst ahead of now, and then moves it one interval further; one
+ * compare-and-set per command and no timer. A client whose bucket is full again is no different
+ * from a new one, so a daemon sweeper drops such entries after they have been idle for a while,
+ * and millions of distinct clients only cost memory while they are active.
+ * </p>
+ * <p>
+ * The sliding window is estimated from two fixed windows: the count of the current window plus the
+ * count of the previous one, weighted by how much of it still overlaps the sliding window. A client
+ * whose estimate goes over the abuse threshold is flagged. The counts are updated without locks and
+ * may miss a command at a window boundary, which is fine for abuse detection.
+ * </p>
+ */
+public class RateLimiter {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int MAX_FLAGGED = 10_000;
+    private static final AtomicLongFieldUpdater<Client> TAT =
+            AtomicLongFieldUpdater.newUpdater(Client.class, "theoreticalArrival");
+    private static final AtomicLongFieldUpdater<Client> WINDOW =
+            AtomicLongFieldUpdater.newUpdater(Client.class, "window");
+
+    private final Map<String, Client> clients;
+    private final Map<String, Integer> flagged;
+    private final long startNanos;
+    private volatile long intervalNanos;
+    private volatile long burstNanos;
+    private volatile int abuseThreshold;
+    private volatile Thread sweeper;
+
+    /**
+     * The limiter state of one client.
+     */
+    private static final class Client {
+        // the time the bucket is full again, in nanoseconds since the limiter started
+        private volatile long theoreticalArrival;
+        // the number of the current window in the high half, the commands counted in it in the low half
+        private volatile long window;
+        private volatile int previousCount;
+    }
+
+    /**
+     * Constructs a RateLimiter that does not limit, but flags clients that send more than
+     * 10000 commands in ten seconds.
+     */
+    public RateLimiter() {
+        this.clients = new ConcurrentHashMap<>();
+        this.flagged = new ConcurrentHashMap<>();
+        this.startNanos = System.nanoTime();
+        this.abuseThreshold = 10_000;
+    }
+
+    /**
+     * Sets the rate and burst of every client's token bucket.
+     *
+     * @param perSecond The number of commands per second a client may send, or 0 for no limit.
+     * @param burst     The number of commands a client may send at once after being idle.
+     * @return The current RateLimiter instance for method chaining.
+     */
+    public RateLimiter setRate(int perSecond, int burst) {
+        if (perSecond < 0 || burst <= 0) {
+            throw new IllegalArgumentException("Invalid rate limit: " + perSecond + " per second, burst " + burst);
+        }
+        long interval = perSecond == 0 ? 0 : 1_000_000_000L / perSecond;
+        this.burstNanos = interval * (burst - 1);
+        this.intervalNanos = interval;
+        return this;
+    }
+
+    /**
+     * Sets the number of commands in ten seconds above which a client is flagged as abusive.
+     *
+     * @param commands The threshold.
+     * @return The current RateLimiter instance for method chaining.
+     */
+    public RateLimiter setAbuseThreshold(int commands) {
+        this.abuseThreshold = commands;
+        return this;
+    }
+
+    /**
+     * Counts a command of a client and checks if the client may send it.
+     *
+     * @param clientId The id of the client, or null for the console, which is never limited.
+     * @return True if the command may be executed, false if the client is over its rate.
+     */
+    public boolean tryAcquire(String clientId) {
+        if (clientId == null) {
+            return true;
+        }
+        Client client = clients.get(clientId);
+        if (client == null) {
+            if (sweeper == null) {
+                startSweeper();
+            }
+            client = clients.computeIfAbsent(clientId, id -> new Client());
+        }
+        long now = System.nanoTime() - startNanos;
+        count(clientId, client, now);
+        long interval = intervalNanos;
+        if (interval == 0) {
+            return true;
+        }
+        while (true) {
+            long tat = client.theoreticalArrival;
+            long start = Math.max(tat, now);
+            if (start - now > burstNanos) {
+                return false;
+            }
+            if (TAT.compareAndSet(client, tat, start + interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of clients with limiter state.
+     *
+     * @return The number of tracked clients.
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Returns the clients flagged as abusive, with the highest estimate of commands in ten seconds seen for each.
+     * At most 10000 clients are kept.
+     *
+     * @return A copy of the flagged clients.
+     */
+    public Map<String, Integer> getFlaggedClients() {
+        return Map.copyOf(flagged);
+    }
+
+    /**
+     * Removes the clients that have been idle long enough for their bucket to be full again.
+     *
+     * @return The number of clients removed.
+     */
+    public int evictIdle() {
+        long now = System.nanoTime() - startNanos;
+        int removed = 0;
+        for (Map.Entry<String, Client> entry : clients.entrySet()) {
+            Client client = entry.getValue();
+            long lastWindowStart = (client.window >>> 32) * WINDOW_NANOS;
+            if (now - client.theoreticalArrival > IDLE_NANOS && now - lastWindowStart > IDLE_NANOS
+                    && clients.remove(entry.getKey(), client)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private void count(String clientId, Client client, long now) {
+        long number = now / WINDOW_NANOS;
+        long window;
+        long updated;
+        do {
+            window = client.window;
+            long current = window >>> 32;
+            if (current == number) {
+                updated = window + 1;
+            } else {
+                updated = (number << 32) | 1;
+            }
+        } while (!WINDOW.compareAndSet(client, window, updated));
+        long previous = window >>> 32;
+        if (previous != number) {
+            client.previousCount = previous == number - 1 ? (int) window : 0;
+        }
+        double overlap = 1.0 - (double) (now - number * WINDOW_NANOS) / WINDOW_NANOS;
+        int estimate = (int) (client.previousCount * overlap) + (int) updated;
+        if (estimate > abuseThreshold) {
+            // a flagged client calls again and again, so it is only written when its estimate grows
+            Integer seen = flagged.get(clientId);
+            if (seen == null ? flagged.size() < MAX_FLAGGED : estimate > seen) {
+                flagged.merge(clientId, estimate, Math::max);
+            }
+        }
+    }
+
+    private synchronized void startSweeper() {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = new Thread(() -> {
+            while (true) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(IDLE_NANOS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                evictIdle();
+            }
+        }, "rate-limiter-sweeper");
+        sweeper.setDaemon(true);
+        sweeper.start();
+    }
+}
@@ -0,0 +1,119 @@
+package utils;
+
+/**
+ * The {@code SeatStore} interface defines where the seat states of a hall keep their state words and
+ * seat counters.
+ * <p>
+ * A store is a fixed number of {@code long} words and {@code int} counters, all zero when it is
+ * created. Every read and write is volatile, and words can be changed by compare-and-set, so the
+ * seat states stay lock-free whatever the store. Implementations must be safe to call from many threads.
+ * </p>
+ * <p>
+ * A store that outlives the process can be told when its contents are those of a checkpoint of the
+ * {@link Journal}, and hand them back after a restart instead of having them rebuilt from the snapshot.
+ * </p>
+ */
+public interface SeatStore {
+    /**
+     * Creates the stores of halls.
+     */
+    interface Factory {
+        /**
+         * Creates a store with every word and counter set to zero.
+         *
+         * @param words    the number of words
+         * @param counters the number of counters
+         * @return the store
+         * @throws exceptions.FileException if the store cannot be created
+         */
+        SeatStore create(int words, int counters);
+
+        /**
+         * Returns a store kept from before a restart that holds the seat states of an event exactly as
+         * they were when the checkpoint at the given journal position copied them. A store is handed
+         * back at most once.
+         *
+         * @param eventId  the id of the event
+         * @param position the position of the event in the checkpoint
+         * @param words    the number of words
+         * @param counters the number of counters
+         * @return the store, or null if there is none or it changed after the checkpoint
+         * @throws exceptions.FileException if the store cannot be opened
+         */
+        default SeatStore recover(long eventId, long position, int words, int counters) {
+            return null;
+        }
+
+        /**
+         * Deletes the stores kept from before a restart that were not recovered. Called once the
+         * events have been recovered.
+         */
+        default void discardUnrecovered() {
+        }
+    }
+
+    /**
+     * Returns the number of words of this store.
+     *
+     * @return the number of words
+     */
+    int wordCount();
+
+    /**
+     * Reads a word.
+     *
+     * @param word the index of the word
+     * @return the value of the word
+     */
+    long getWord(int word);
+
+    /**
+     * Writes a word.
+     *
+     * @param word  the index of the word
+     * @param value the new value
+     */
+    void setWord(int word, long value);
+
+    /**
+     * Atomically sets a word to a new value if it currently has the expected value.
+     *
+     * @param word   the index of the word
+     * @param expect the expected value
+     * @param update the new value
+     * @return true if the word was changed, false if it did not have the expected value
+     */
+    boolean compareAndSetWord(int word, long expect, long update);
+
+    /**
+     * Reads a counter.
+     *
+     * @param counter the index of the counter
+     * @return the value of the counter
+     */
+    int getCounter(int counter);
+
+    /**
+     * Atomically adds to a counter.
+     *
+     * @param counter the index of the counter
+     * @param delta   the value to add
+     */
+    void addToCounter(int counter, int delta);
+
+    /**
+     * Records that the contents of this store are those copied by a checkpoint at the given journal
+     * position. The record is dropped by the next change of a word or counter.
+     *
+     * @param eventId  the id of the event whose seat states this store holds
+     * @param position the position of the event in the checkpoint
+     */
+    default void checkpointed(long eventId, long position) {
+    }
+
+    /**
+     * Writes the contents of this store to storage, if it has any.
+     */
+    default void force() {
+    }
+}
@@ -0,0 +1,165 @@
+package utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+
+/**
+ * The Session class represents the client a command is being executed for, and is where the
+ * operations write their output.
+ * <p>
+ * The session is bound to the thread that executes the commands: the console session writes to
+ * {@code System.out}, and every connection of the {@code CommandServer} binds its own session, so
+ * the output of a command goes back to the client that sent it. Operations print through
+ * {@link #out()} instead of {@code System.out}, and read the answers to their questions through
+ * {@link #readLine()} instead of {@code System.in}, so a question asked by a network client is
+ * answered by that client.
+ * </p>
+ */
+public final class Session {
+    private static final Session CONSOLE = new Session(System.out,
+            new BufferedReader(new InputStreamReader(System.in)), false, null);
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+
+    private final PrintStream out;
+    private final BufferedReader in;
+    private final boolean remote;
+    private final String clientId;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a Session that writes to the given stream.
+     *
+     * @param out    The stream the output of the commands is written to.
+     * @param remote True if the session belongs to a network client, false for the console.
+     */
+    public Session(PrintStream out, boolean remote) {
+        this(out, remote, null);
+    }
+
+    /**
+     * Constructs a Session that writes to the given stream, for an identified client.
+     *
+     * @param out      The stream the output of the commands is written to.
+     * @param remote   True if the session belongs to a network client, false for the console.
+     * @param clientId The id the client is rate limited by, e.g. its address, or null for none.
+     */
+    public Session(PrintStream out, boolean remote, String clientId) {
+        this(out, null, remote, clientId);
+    }
+
+    /**
+     * Constructs a Session that writes to the given stream and reads its input from the given reader,
+     * for an identified client.
+     *
+     * @param out      The stream the output of the commands is written to.
+     * @param in       The reader the lines of the client are read from, or null if it has none.
+     * @param remote   True if the session belongs to a network client, false for the console.
+     * @param clientId The id the client is rate limited by, e.g. its address, or null for none.
+     */
+    public Session(PrintStream out, BufferedReader in, boolean remote, String clientId) {
+        this.out = out;
+        this.in = in;
+        this.remote = remote;
+        this.clientId = clientId;
+    }
+
+    /**
+     * Returns the session bound to the current thread, or the console session if there is none.
+     *
+     * @return The current Session.
+     */
+    public static Session current() {
+        Session session = CURRENT.get();
+        return session == null ? CONSOLE : session;
+    }
+
+    /**
+     * Returns the output stream of the current session.
+     *
+     * @return The stream to print command output to.
+     */
+    public static PrintStream out() {
+        return current().out;
+    }
+
+    /**
+     * Reads the next line of the client of the current session, after flushing what was written to
+     * it, so a question is seen before its answer is awaited. Must not be called from a writer thread,
+     * where it would hold up every other mutation until the client answers.
+     *
+     * @return The line, or null if the client has no more input or the session has no input.
+     */
+    public static String readLine() {
+        Session session = current();
+        session.out.flush();
+        if (session.in == null) {
+            return null;
+        }
+        try {
+            return session.in.readLine();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Binds a session to the current thread until {@link #unbind()} is called.
+     *
+     * @param session The session.
+     */
+    public static void bind(Session session) {
+        CURRENT.set(session);
+    }
+
+    /**
+     * Removes the session bound to the current thread.
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Returns the output stream of the session.
+     *
+     * @return The output stream.
+     */
+    public PrintStream getOut() {
+        return out;
+    }
+
+    /**
+     * Returns the id the client of the session is rate limited by.
+     *
+     * @return The client id, or null for the console.
+     */
+    public String getClientId() {
+        return clientId;
+    }
+
+    /**
+     * Checks if the session belongs to a network client.
+     *
+     * @return True for a network client, false for the console.
+     */
+    public boolean isRemote() {
+        return remote;
+    }
+
+    /**
+     * Marks the session as closed; the connection ends after the current command.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Checks if the session was closed.
+     *
+     * @return True if the session is closed, false otherwise.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,139 @@
+package utils;
+
+import java.util.function.Supplier;
+
+/**
+ * The ShardedWriter class spreads the mutations over several {@link WriterLoop}s, one writer thread
+ * per shard, so mutations of different events run in parallel.
+ * <p>
+ * A mutation addressed to a single event carries a routing key, the date and name of the event as
+ * built by {@link #routingKey(String, String)}, and always runs on the shard of that key, so all
+ * mutations of one event are still run one at a time and in order. A mutation without a key, such as
+ * {@code open} or the removals of {@code statistic}, runs on every shard at once: it is passed from
+ * the first writer to the next until the last one runs it while the others wait, so it never overlaps
+ * any other mutation. Writers are always taken in the same order, so two such mutations cannot deadlock.
+ * While a mutation without a key runs, every shard is its own: any task it passes to the writer,
+ * with or without a key, is run straight away on its thread instead of waiting for a shard it holds.
+ * </p>
+ */
+public class ShardedWriter {
+    private final WriterLoop[] shards;
+    private volatile Thread exclusiveOwner;
+
+    /**
+     * Constructs a ShardedWriter with the given number of shards.
+     *
+     * @param shardCount The number of shards, usually the number of cores.
+     * @param capacity   The number of slots of each shard.
+     */
+    public ShardedWriter(int shardCount, int capacity) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Invalid number of shards: " + shardCount);
+        }
+        this.shards = new WriterLoop[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new WriterLoop("command-writer-" + i, capacity);
+        }
+    }
+
+    /**
+     * Builds the routing key of an event.
+     *
+     * @param date The date of the event, in the {@code yyyy-MM-dd HH:mm:ss} format of the commands.
+     * @param name The name of the event.
+     * @return The routing key.
+     */
+    public static String routingKey(String date, String name) {
+        return date + " " + name;
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return The number of shards.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the writer of a shard.
+     *
+     * @param shard The index of the shard.
+     * @return The WriterLoop of the shard.
+     */
+    public WriterLoop getShard(int shard) {
+        return shards[shard];
+    }
+
+    /**
+     * Sets a task every writer runs after each of its batches, before the producers of the batch are woken.
+     *
+     * @param batchListener The task, or null for none.
+     * @return The current ShardedWriter instance for method chaining.
+     * @see WriterLoop#setBatchListener(Runnable)
+     */
+    public ShardedWriter setBatchListener(Runnable batchListener) {
+        for (WriterLoop shard : shards) {
+            shard.setBatchListener(batchListener);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the shard a routing key belongs to.
+     *
+     * @param key The routing key.
+     * @return The index of the shard.
+     */
+    public int shardOf(String key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    /**
+     * Runs a task on the shard of the given key and waits for it to finish.
+     *
+     * @param key  The routing key, or null to run the task on every shard at once.
+     * @param task The task.
+     * @throws RuntimeException Whatever the task throws.
+     */
+    public void run(String key, Runnable task) {
+        call(key, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a task on the shard of the given key, waits for it to finish and returns its result.
+     *
+     * @param key  The routing key, or null to run the task on every shard at once.
+     * @param task The task.
+     * @param <T>  The type of the result.
+     * @return The result of the task.
+     * @throws RuntimeException Whatever the task throws.
+     */
+    public <T> T call(String key, Supplier<T> task) {
+        if (Thread.currentThread() == exclusiveOwner) {
+            // called from a task that already runs on every shard
+            return task.get();
+        }
+        if (key == null) {
+            return callFrom(0, task);
+        }
+        return shards[shardOf(key)].call(task);
+    }
+
+    private <T> T callFrom(int shard, Supplier<T> task) {
+        if (shard == shards.length) {
+            exclusiveOwner = Thread.currentThread();
+            try {
+                return task.get();
+            } finally {
+                exclusiveOwner = null;
+            }
+        }
+        return shards[shard].call(() -> callFrom(shard + 1, task));
+    }
+}
@@ -0,0 +1,476 @@
+package utils;
+
+import entities.Event;
+import entities.EventBooker;
+import entities.Hall;
+import entities.HallLayout;
+import entities.HallSnapshot;
+import entities.Halls;
+import entities.Ticket;
+import exceptions.FileException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SnapshotFile class reads and writes the full state of the events in a compact binary format:
+ * every event with its hall, the seat states, the notes and the tickets.
+ * <p>
+ * A file starts with an eight byte magic number and a format version, followed by length-prefixed
+ * sections: one per event and an end section, so a truncated file is detected and sections of an
+ * unknown type can be skipped. All numbers are big-endian. An event section holds
+ * </p>
+ * <ul>
+ *     <li>the id, date, name and hall name of the event and the geometry of the hall,</li>
+ *     <li>the number of ticket serials handed out,</li>
+ *     <li>the seat states as the words of {@link entities.SeatStates}, two bits per seat, followed by
+ *     the words that mark the seats paid without a booking, which older files leave out; no words at
+ *     all for a hall whose seat states were never built, as every seat of it is free,</li>
+ *     <li>the notes of the booked seats as (seat index, text) pairs,</li>
+ *     <li>the tickets as an array of codes followed by an array of seat indexes.</li>
+ * </ul>
+ * <p>
+ * The arrays are written and read in bulk through views of a {@link ByteBuffer}. Each hall is written
+ * from a {@link HallSnapshot}, so a file can be saved while sales continue. Event ids are kept, since
+ * ticket codes encode them. Seat holds are not saved; held seats are read back as free.
+ * A file is written to a temporary file first and then moved into place, so a failed save never
+ * leaves a half-written file behind.
+ * </p>
+ * <p>
+ * A snapshot taken as a checkpoint of a {@link Journal} also has a journal section with a
+ * {@link Checkpoint}: where in the journal the snapshot was taken, for every event, so only the
+ * records after it are replayed. Files without it are still read, and readers skip it. Halls whose
+ * {@link SeatStore} kept the seat states of the checkpoint across a restart take them over instead of
+ * reading them from the file.
+ * </p>
+ */
+public class SnapshotFile {
+    private static final long MAGIC = 0x8954534E500D0A1AL;
+    private static final int VERSION = 1;
+    private static final int END_SECTION = 0;
+    private static final int EVENT_SECTION = 1;
+    private static final int JOURNAL_SECTION = 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * The Checkpoint class records where in a {@link Journal} a snapshot was taken: the position the
+     * replay starts from, and for every event the position after its last change in the snapshot.
+     */
+    public static final class Checkpoint {
+        private long journalStart;
+        private final Map<Long, Long> eventPositions;
+
+        /**
+         * Constructs an empty Checkpoint.
+         */
+        public Checkpoint() {
+            this.eventPositions = new HashMap<>();
+        }
+
+        /**
+         * Returns the position in the journal the replay starts from.
+         *
+         * @return The position.
+         */
+        public long getJournalStart() {
+            return journalStart;
+        }
+
+        /**
+         * Sets the position in the journal the replay starts from.
+         *
+         * @param journalStart The position.
+         * @return The current Checkpoint instance for method chaining.
+         */
+        public Checkpoint setJournalStart(long journalStart) {
+            this.journalStart = journalStart;
+            return this;
+        }
+
+        /**
+         * Returns the position in the journal after the last change of an event that the snapshot contains.
+         *
+         * @param eventId The id of the event.
+         * @return The position, or -1 if the snapshot does not contain the event.
+         */
+        public long getEventPosition(long eventId) {
+            return eventPositions.getOrDefault(eventId, -1L);
+        }
+
+        /**
+         * Sets the position in the journal after the last change of an event that the snapshot contains.
+         *
+         * @param eventId  The id of the event.
+         * @param position The position.
+         * @return The current Checkpoint instance for method chaining.
+         */
+        public Checkpoint setEventPosition(long eventId, long position) {
+            eventPositions.put(eventId, position);
+            return this;
+        }
+    }
+
+    /**
+     * Checks if a file starts with the magic number of a snapshot file.
+     *
+     * @param path The path of the file.
+     * @return True if the file is a snapshot file, false if it is missing, shorter or another file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isSnapshot(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            return !header.hasRemaining() && header.getLong(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes the events of an EventBooker and the full state of their halls to a file, replacing it if
+     * it exists. Each hall is copied with {@link EventBooker#snapshot(Event)}, so sales may go on.
+     *
+     * @param path        The path of the file.
+     * @param eventBooker The EventBooker of the events.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path path, EventBooker eventBooker) throws IOException {
+        List<Event> events = eventBooker.getEvents();
+        List<HallSnapshot> snapshots = new ArrayList<>(events.size());
+        int[] ticketSerials = new int[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            Hall hall = events.get(i).getHall();
+            snapshots.add(eventBooker.snapshot(events.get(i)));
+            // read after the snapshot, so it covers every ticket in it
+            ticketSerials[i] = hall.getTicketSerial();
+        }
+        write(path, events, snapshots, ticketSerials, null);
+    }
+
+    /**
+     * Writes events from snapshots of their halls taken beforehand, e.g. as a checkpoint of a journal.
+     *
+     * @param path          The path of the file.
+     * @param events        The events.
+     * @param snapshots     A snapshot of the hall of each event.
+     * @param ticketSerials The number of ticket serials handed out by each hall, at least as many as its snapshot has tickets.
+     * @param checkpoint    Where in the journal the snapshots were taken, or null if they are not a checkpoint.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path path, List<Event> events, List<HallSnapshot> snapshots, int[] ticketSerials,
+                             Checkpoint checkpoint) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Output out = new Output(FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            out.ensure(Long.BYTES + Integer.BYTES);
+            out.buffer.putLong(MAGIC).putInt(VERSION);
+            for (int i = 0; i < events.size(); i++) {
+                writeEvent(out, events.get(i), snapshots.get(i), ticketSerials[i]);
+            }
+            if (checkpoint != null) {
+                Map<Long, Long> positions = checkpoint.eventPositions;
+                out.ensure(Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES);
+                out.buffer.putInt(JOURNAL_SECTION).putLong(Long.BYTES + Integer.BYTES + 2L * Long.BYTES * positions.size())
+                        .putLong(checkpoint.journalStart).putInt(positions.size());
+                for (Map.Entry<Long, Long> entry : positions.entrySet()) {
+                    out.ensure(2 * Long.BYTES);
+                    out.buffer.putLong(entry.getKey()).putLong(entry.getValue());
+                }
+            }
+            out.ensure(Integer.BYTES + Long.BYTES);
+            out.buffer.putInt(END_SECTION).putLong(0);
+            out.flush();
+            out.channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the events of a snapshot file. Each event gets a new hall from the given halls,
+     * restored to the saved state. The events are not added to any EventBooker.
+     *
+     * @param path  The path of the file.
+     * @param halls The halls the events take place in.
+     * @return The events, in the order they were saved.
+     * @throws IOException   If the file cannot be read.
+     * @throws FileException If the file is damaged, of an unknown version or does not match the halls.
+     */
+    public static List<Event> read(Path path, Halls halls) throws IOException {
+        return read(path, halls, null);
+    }
+
+    /**
+     * Reads the events of a snapshot file, together with the checkpoint it was taken at, if any.
+     *
+     * @param path       The path of the file.
+     * @param halls      The halls the events take place in.
+     * @param checkpoint The Checkpoint to fill in from the journal section of the file, or null.
+     * @return The events, in the order they were saved.
+     * @throws IOException   If the file cannot be read.
+     * @throws FileException If the file is damaged, of an unknown version or does not match the halls.
+     */
+    public static List<Event> read(Path path, Halls halls, Checkpoint checkpoint) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new FileException("The file is too large");
+            }
+            in = ByteBuffer.allocate((int) size);
+            while (in.hasRemaining() && channel.read(in) >= 0) {
+                // read the whole file; the sections are decoded from memory
+            }
+            in.flip();
+        }
+        try {
+            if (in.getLong() != MAGIC) {
+                throw new FileException("The file is not a snapshot file");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new FileException("Unsupported snapshot file version: " + version);
+            }
+            List<ByteBuffer> eventSections = new ArrayList<>();
+            while (true) {
+                int type = in.getInt();
+                long length = in.getLong();
+                if (length < 0 || length > in.remaining()) {
+                    throw new FileException("The file is damaged");
+                }
+                if (type == END_SECTION) {
+                    break;
+                }
+                ByteBuffer section = in.slice(in.position(), (int) length);
+                in.position(in.position() + (int) length);
+                if (type == EVENT_SECTION) {
+                    eventSections.add(section);
+                } else if (type == JOURNAL_SECTION && checkpoint != null) {
+                    checkpoint.setJournalStart(section.getLong());
+                    for (int i = section.getInt(); i > 0; i--) {
+                        checkpoint.setEventPosition(section.getLong(), section.getLong());
+                    }
+                }
+            }
+            // the checkpoint comes after the events, and tells which seat states can be recovered
+            List<Event> events = new ArrayList<>(eventSections.size());
+            for (ByteBuffer section : eventSections) {
+                events.add(readEvent(section, halls, checkpoint));
+            }
+            return events;
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new FileException("The file is damaged");
+        }
+    }
+
+    private static void writeEvent(Output out, Event event, HallSnapshot snapshot, int ticketSerial) throws IOException {
+        Hall hall = event.getHall();
+        HallLayout layout = hall.getLayout();
+        byte[] name = event.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] hallName = ("Hall-" + hall.getNumber()).getBytes(StandardCharsets.UTF_8);
+        long[] words = snapshot.copyWords();
+        int[] noteSeats = snapshot.getNoteSeats();
+        byte[][] notes = new byte[noteSeats.length][];
+        List<Ticket> tickets = snapshot.getTickets();
+        long[] codes = new long[tickets.size()];
+        int[] seats = new int[tickets.size()];
+        for (int i = 0; i < codes.length; i++) {
+            Ticket ticket = tickets.get(i);
+            codes[i] = ticket.getCode();
+            seats[i] = layout.getSeatIndex(ticket.getSeatNumber());
+        }
+
+        long length = Long.BYTES + Long.BYTES + Integer.BYTES
+                + Integer.BYTES + name.length + Integer.BYTES + hallName.length
+                + 3 * Integer.BYTES
+                + Integer.BYTES + (long) Long.BYTES * words.length
+                + Integer.BYTES
+                + Integer.BYTES + (long) (Long.BYTES + Integer.BYTES) * codes.length;
+        for (int i = 0; i < noteSeats.length; i++) {
+            notes[i] = snapshot.getNote(noteSeats[i]).getBytes(StandardCharsets.UTF_8);
+            length += Integer.BYTES + Integer.BYTES + notes[i].length;
+        }
+
+        out.ensure(Integer.BYTES + Long.BYTES);
+        out.buffer.putInt(EVENT_SECTION).putLong(length);
+        out.ensure(Long.BYTES + Long.BYTES + Integer.BYTES);
+        out.buffer.putLong(event.getId())
+                .putLong(event.getDate().toEpochSecond(ZoneOffset.UTC))
+                .putInt(event.getDate().getNano());
+        out.putBytes(name);
+        out.putBytes(hallName);
+        out.ensure(3 * Integer.BYTES);
+        out.buffer.putInt(layout.getNUMBER_OF_ROWS()).putInt(layout.getNUMBER_OF_SEATS()).putInt(ticketSerial);
+        out.putLongs(words);
+        out.ensure(Integer.BYTES);
+        out.buffer.putInt(noteSeats.length);
+        for (int i = 0; i < noteSeats.length; i++) {
+            out.ensure(Integer.BYTES);
+            out.buffer.putInt(noteSeats[i]);
+            out.putBytes(notes[i]);
+        }
+        out.putLongs(codes);
+        out.putInts(seats);
+    }
+
+    private static Event readEvent(ByteBuffer in, Halls halls, Checkpoint checkpoint) {
+        long id = in.getLong();
+        long epochSecond = in.getLong();
+        int nano = in.getInt();
+        String name = getString(in);
+        String hallName = getString(in);
+        int rows = in.getInt();
+        int seatsPerRow = in.getInt();
+        int ticketSerial = in.getInt();
+        Hall hall = halls.createHall(hallName);
+        HallLayout layout = hall.getLayout();
+        if (layout.getNUMBER_OF_ROWS() != rows || layout.getNUMBER_OF_SEATS() != seatsPerRow) {
+            throw new FileException("The halls of the file do not match: " + hallName);
+        }
+
+        int wordCount = count(in, Long.BYTES);
+        long position = checkpoint == null ? -1 : checkpoint.getEventPosition(id);
+        long[] words = null;
+        // no words stand for a hall whose seat states were never built, which stays so
+        if (wordCount == 0 || position < 0 || !hall.recoverStates(id, position)) {
+            words = new long[wordCount];
+            in.asLongBuffer().get(words);
+        }
+        in.position(in.position() + Long.BYTES * wordCount);
+        int[] noteSeats = new int[count(in, 2 * Integer.BYTES)];
+        String[] notes = new String[noteSeats.length];
+        for (int i = 0; i < noteSeats.length; i++) {
+            noteSeats[i] = in.getInt();
+            notes[i] = getString(in);
+            if (noteSeats[i] < 0 || noteSeats[i] >= layout.getCapacity()) {
+                throw new FileException("The file is damaged");
+            }
+        }
+        long[] codes = new long[count(in, Long.BYTES + Integer.BYTES)];
+        in.asLongBuffer().get(codes);
+        in.position(in.position() + Long.BYTES * codes.length);
+        int[] seats = new int[codes.length];
+        in.asIntBuffer().get(seats);
+        Ticket[] tickets = new Ticket[codes.length];
+        for (int i = 0; i < tickets.length; i++) {
+            if (seats[i] < 0 || seats[i] >= layout.getCapacity()) {
+                throw new FileException("The file is damaged");
+            }
+            tickets[i] = new Ticket(codes[i], layout.getSeatLabel(seats[i]));
+        }
+
+        hall.restore(words, noteSeats, notes, tickets, ticketSerial);
+        LocalDateTime date = LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+        return new Event(date, name, hall).setId(id);
+    }
+
+    /**
+     * Reads the length of an array and checks that the section can hold that many elements.
+     */
+    private static int count(ByteBuffer in, int elementBytes) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining() / elementBytes) {
+            throw new FileException("The file is damaged");
+        }
+        return count;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * A file channel written through one reused buffer.
+     */
+    private static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        private Output(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void putBytes(byte[] bytes) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int count = Math.min(bytes.length - offset, buffer.remaining());
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        private void putLongs(long[] values) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(values.length);
+            for (int offset = 0; offset < values.length; ) {
+                ensure(Long.BYTES);
+                int count = Math.min(values.length - offset, buffer.remaining() / Long.BYTES);
+                buffer.asLongBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * Long.BYTES);
+                offset += count;
+            }
+        }
+
+        private void putInts(int[] values) throws IOException {
+            for (int offset = 0; offset < values.length; ) {
+                ensure(Integer.BYTES);
+                int count = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                offset += count;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package utils;
+
+/**
+ * The {@code TicketCodeAllocator} interface defines how ticket codes are allocated, printed and decoded.
+ * <p>
+ * A code is kept as a {@code long} and only rendered as text when it is printed. Implementations must
+ * return distinct codes for distinct (event id, serial) pairs and must be able to recover the event id
+ * from a code, so that a ticket can be validated without searching every event.
+ * Implementations must be safe to call from many threads.
+ * </p>
+ */
+public interface TicketCodeAllocator {
+    /**
+     * Allocates the code of a ticket.
+     *
+     * @param eventId the id of the event the ticket is issued for
+     * @param serial the serial number of the ticket within its event, starting at 0
+     * @return the ticket code
+     * @throws exceptions.TicketException if the event id or serial cannot be encoded
+     */
+    long allocate(long eventId, int serial);
+
+    /**
+     * Returns how many serials the codes of one event can hold, i.e. how many tickets can be issued
+     * for an event. Events whose hall has more seats than this are refused when they are added.
+     *
+     * @return the number of serials per event
+     */
+    int maxSerials();
+
+    /**
+     * Decodes the id of the event a ticket code was allocated for.
+     *
+     * @param code the ticket code
+     * @return the event id
+     */
+    long eventIdOf(long code);
+
+    /**
+     * Renders a ticket code as the text printed on the ticket.
+     *
+     * @param code the ticket code
+     * @return the printable code
+     */
+    String render(long code);
+
+    /**
+     * Parses a printed ticket code.
+     *
+     * @param text the printable code
+     * @return the ticket code, or {@code -1} if the text is not a well-formed code
+     */
+    long parse(String text);
+}
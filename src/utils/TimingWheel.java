@@ -0,0 +1,171 @@
+package utils;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TimingWheel class is a hashed timing wheel that expires {@link Timeout}s after a delay.
+ * <p>
+ * Time is cut into ticks, and the wheel is an array of slots, one per tick, that wraps around.
+ * A timeout is filed into the slot of its deadline tick together with the number of full turns
+ * of the wheel still to wait, so scheduling is O(1) and each tick only looks at one slot; there is
+ * no timer per timeout and no scan over every outstanding timeout.
+ * </p>
+ * <p>
+ * New timeouts are queued by any thread and moved into their slots by a single daemon ticker
+ * thread, which also runs {@link Timeout#expire()}. Scheduling only adds to a concurrent queue, so it
+ * never waits for the ticker. The ticker holds the lock of the wheel while it expires a tick, which
+ * only keeps out {@link #advanceTo(long)} callers of their own; {@code expire()} must therefore not
+ * block, and hands any slow work, such as a change of the model, to another thread.
+ * A timeout is not removed from its slot when it becomes irrelevant; its {@code expire()}
+ * is expected to do nothing in that case.
+ * </p>
+ */
+public class TimingWheel {
+    private final long tickNanos;
+    private final int mask;
+    private final Timeout[] slots;
+    private final ConcurrentLinkedQueue<Timeout> pending;
+    private final long startNanos;
+    private long currentTick;
+    private volatile Thread ticker;
+
+    /**
+     * The Timeout class is an entry of the wheel. Subclasses define what happens on expiry.
+     */
+    public abstract static class Timeout {
+        private long deadlineNanos;
+        private long remainingRounds;
+        private Timeout next;
+
+        /**
+         * Called by the ticker thread once the delay of this timeout has passed. Must not block.
+         */
+        protected abstract void expire();
+    }
+
+    /**
+     * Constructs a TimingWheel with the given tick duration and number of slots.
+     * The ticker thread is started by the first {@link #schedule(Timeout, long, TimeUnit)}.
+     *
+     * @param tick      The duration of a tick, the resolution of the wheel.
+     * @param unit      The unit of the tick duration.
+     * @param wheelSize The number of slots, rounded up to a power of two.
+     */
+    public TimingWheel(long tick, TimeUnit unit, int wheelSize) {
+        if (tick <= 0 || wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Invalid timing wheel: " + tick + " " + unit + " x " + wheelSize);
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tick);
+        this.mask = size - 1;
+        this.slots = new Timeout[size];
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Schedules a timeout to expire after the given delay. A timeout must only be scheduled once.
+     *
+     * @param timeout The timeout.
+     * @param delay   The delay.
+     * @param unit    The unit of the delay.
+     */
+    public void schedule(Timeout timeout, long delay, TimeUnit unit) {
+        timeout.deadlineNanos = System.nanoTime() - startNanos + unit.toNanos(delay);
+        pending.add(timeout);
+        if (ticker == null) {
+            startTicker();
+        }
+    }
+
+    /**
+     * Returns the number of timeouts that are queued but not yet filed into a slot.
+     *
+     * @return The number of pending timeouts.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Processes every tick up to the given time: files the pending timeouts into their slots and
+     * expires the due ones. This is what the ticker thread runs; it is public so that callers that
+     * drive their own clock can use the wheel without the ticker.
+     *
+     * @param nowNanos The time, in nanoseconds since the wheel was created.
+     * @return The number of timeouts that expired.
+     */
+    public synchronized int advanceTo(long nowNanos) {
+        int expired = 0;
+        long lastTick = nowNanos / tickNanos;
+        while (currentTick <= lastTick) {
+            fillSlots();
+            expired += expireSlot((int) (currentTick & mask));
+            currentTick++;
+        }
+        return expired;
+    }
+
+    private synchronized void startTicker() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = new Thread(() -> {
+            while (true) {
+                long now = System.nanoTime() - startNanos;
+                long sleep = (now / tickNanos + 1) * tickNanos - now;
+                if (sleep > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(sleep);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                advanceTo(System.nanoTime() - startNanos);
+            }
+        }, "timing-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private void fillSlots() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            // a deadline that has already passed goes into the current slot
+            long tick = Math.max(timeout.deadlineNanos / tickNanos, currentTick);
+            timeout.remainingRounds = (tick - currentTick) / slots.length;
+            int slot = (int) (tick & mask);
+            timeout.next = slots[slot];
+            slots[slot] = timeout;
+        }
+    }
+
+    private int expireSlot(int slot) {
+        int expired = 0;
+        Timeout kept = null;
+        Timeout timeout = slots[slot];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                timeout.next = null;
+                try {
+                    timeout.expire();
+                } catch (RuntimeException e) {
+                    // one failing timeout must not stop the others from expiring
+                }
+                expired++;
+            } else {
+                timeout.remainingRounds--;
+                timeout.next = kept;
+                kept = timeout;
+            }
+            timeout = next;
+        }
+        slots[slot] = kept;
+        return expired;
+    }
+}
@@ -0,0 +1,266 @@
+package utils;
+
+import exceptions.DurabilityException;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * The WriterLoop class runs tasks one after another on a single writer thread, in the order they were
+ * submitted. The mutations of the model are funnelled through it, so they never run concurrently and
+ * always in a well-defined order, while reads keep running on the threads of the front ends.
+ * <p>
+ * The tasks are passed through a ring of slots that are allocated once, in the style of a disruptor.
+ * A producer claims the next sequence number with a single atomic increment, fills the slot for that
+ * number, publishes it and parks until the writer has run its task. Each slot goes through three
+ * states for every sequence number it carries: free, published and done; only its producer frees it
+ * again, after collecting the result, so a slot is never reused while its result is still being read.
+ * Producers never lock, and the writer only reads slots.
+ * </p>
+ * <p>
+ * The writer takes every task that has been published in a row, up to a batch limit, runs them and
+ * only then marks them done and wakes their producers, so under load many commands share one
+ * hand-off. A task runs with the {@link Session} of its producer bound, so its output still reaches
+ * the right client. A task submitted from the writer thread itself runs immediately. A batch
+ * listener, if set, runs after each batch and before its producers are woken, so a journal can make
+ * the changes of a whole batch durable at once before any of them is acknowledged.
+ * </p>
+ */
+public class WriterLoop {
+    private static final int MAX_BATCH = 256;
+
+    private final String name;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong cursor;
+    private final Thread[] batchWaiters;
+    private volatile Thread writer;
+    private volatile boolean writerParked;
+    private volatile Runnable batchListener;
+    private volatile long batchCount;
+    private volatile long taskCount;
+
+    /**
+     * A slot of the ring. Its state is {@code 4 * sequence + phase}, where the phase is one of
+     * {@link #FREE}, {@link #PUBLISHED} or {@link #DONE}.
+     */
+    private static final class Slot {
+        private static final long FREE = 0;
+        private static final long PUBLISHED = 1;
+        private static final long DONE = 2;
+
+        private volatile long state;
+        private Supplier<?> task;
+        private Session session;
+        private Thread waiter;
+        private Object result;
+        private Throwable failure;
+
+        private Slot(long sequence) {
+            this.state = 4 * sequence + FREE;
+        }
+    }
+
+    /**
+     * Constructs a WriterLoop with the given number of slots.
+     * The writer thread is started by the first task.
+     *
+     * @param name     The name of the writer thread.
+     * @param capacity The number of slots, rounded up to a power of two.
+     */
+    public WriterLoop(String name, int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid writer loop capacity: " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.name = name;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = size - 1;
+        this.cursor = new AtomicLong();
+        this.batchWaiters = new Thread[Math.min(size, MAX_BATCH)];
+    }
+
+    /**
+     * Runs a task on the writer thread and waits for it to finish.
+     *
+     * @param task The task.
+     * @throws RuntimeException Whatever the task throws.
+     */
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a task on the writer thread, waits for it to finish and returns its result.
+     *
+     * @param task The task.
+     * @param <T>  The type of the result.
+     * @return The result of the task.
+     * @throws RuntimeException Whatever the task throws; errors are rethrown as well.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T call(Supplier<T> task) {
+        Thread current = Thread.currentThread();
+        if (current == writer) {
+            return task.get();
+        }
+        if (writer == null) {
+            startWriter();
+        }
+        long sequence = cursor.getAndIncrement();
+        Slot slot = slots[(int) (sequence & mask)];
+        for (int spins = 0; slot.state != 4 * sequence + Slot.FREE; spins++) {
+            // the ring is full: the producer of the previous lap has not collected its result yet
+            backOff(spins);
+        }
+        slot.task = task;
+        slot.session = Session.current();
+        slot.waiter = current;
+        slot.state = 4 * sequence + Slot.PUBLISHED;
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        while (slot.state != 4 * sequence + Slot.DONE) {
+            LockSupport.park(this);
+        }
+        Object result = slot.result;
+        Throwable failure = slot.failure;
+        slot.task = null;
+        slot.session = null;
+        slot.waiter = null;
+        slot.result = null;
+        slot.failure = null;
+        slot.state = 4 * (sequence + slots.length) + Slot.FREE;
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        } else if (failure != null) {
+            throw (Error) failure;
+        }
+        return (T) result;
+    }
+
+    /**
+     * Sets a task the writer runs after each batch, before the producers of the batch are woken.
+     * If it fails, the tasks of the batch have still run and their changes stand, so every task that
+     * succeeded fails with a {@link DurabilityException} instead, which tells its producer that the
+     * change was made but may be lost on a restart. Tasks that failed keep their own exception.
+     *
+     * @param batchListener The task, or null for none.
+     * @return The current WriterLoop instance for method chaining.
+     */
+    public WriterLoop setBatchListener(Runnable batchListener) {
+        this.batchListener = batchListener;
+        return this;
+    }
+
+    /**
+     * Returns the number of batches the writer has run.
+     *
+     * @return The number of batches.
+     */
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Returns the number of tasks the writer has run.
+     *
+     * @return The number of tasks.
+     */
+    public long getTaskCount() {
+        return taskCount;
+    }
+
+    private synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        Thread thread = new Thread(this::writeLoop, name);
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    private void writeLoop() {
+        long next = 0;
+        while (true) {
+            int batch = 0;
+            while (batch < batchWaiters.length) {
+                Slot slot = slots[(int) ((next + batch) & mask)];
+                if (slot.state != 4 * (next + batch) + Slot.PUBLISHED) {
+                    break;
+                }
+                Session.bind(slot.session);
+                try {
+                    slot.result = slot.task.get();
+                } catch (RuntimeException | Error e) {
+                    slot.failure = e;
+                } finally {
+                    Session.unbind();
+                }
+                batchWaiters[batch++] = slot.waiter;
+            }
+            if (batch == 0) {
+                waitForTask(slots[(int) (next & mask)], 4 * next + Slot.PUBLISHED);
+                continue;
+            }
+            Runnable listener = batchListener;
+            if (listener != null) {
+                try {
+                    listener.run();
+                } catch (RuntimeException | Error e) {
+                    // the changes of the batch are made and stand, so they are not reported as failed
+                    DurabilityException notDurable = new DurabilityException(
+                            "The change was made, but could not be made durable: " + e.getMessage(), e);
+                    for (int i = 0; i < batch; i++) {
+                        Slot slot = slots[(int) ((next + i) & mask)];
+                        if (slot.failure == null) {
+                            slot.failure = notDurable;
+                            slot.result = null;
+                        }
+                    }
+                }
+            }
+            // the waiters were copied first: a slot marked done may be freed and refilled at once
+            for (int i = 0; i < batch; i++) {
+                slots[(int) ((next + i) & mask)].state = 4 * (next + i) + Slot.DONE;
+            }
+            for (int i = 0; i < batch; i++) {
+                LockSupport.unpark(batchWaiters[i]);
+                batchWaiters[i] = null;
+            }
+            next += batch;
+            batchCount++;
+            taskCount += batch;
+        }
+    }
+
+    private void waitForTask(Slot slot, long published) {
+        writerParked = true;
+        // checked again after raising the flag, so a producer that missed the flag has already published
+        if (slot.state != published) {
+            LockSupport.park(this);
+        }
+        writerParked = false;
+    }
+
+    private static void backOff(int spins) {
+        if (spins < 100) {
+            Thread.onSpinWait();
+        } else if (spins < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+}